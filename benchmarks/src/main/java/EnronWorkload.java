@@ -0,0 +1,113 @@
+import benchmarks.Workload;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ *  EnronWorkload.java
+ *  Implements the benchmarked operations over a fixed-size slice of a data repository; keeping the contents of its
+ *  documents in memory, so that only the train and test file readers touch the disk. For further information also
+ *  check the documentation of the Workload interface.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class EnronWorkload implements Workload {
+    /*
+     *  Local variables.
+     */
+    private String[] paths, names;
+    private boolean[] labels;
+    private byte[][] contents;
+    private NaiveBayes model;
+    private BitSet k_best_properties;
+    private ArrayList<Vec2<String, int[]>> tokenized;
+
+    /**
+     * Implementation of overridden method load; training the classifier, tokenizing the documents for classification
+     * and selecting the k-Best features for a data percentage of 0.9 as well.
+     */
+    public void load(String directory, int documents) {
+        String[] listOfFiles = new File(directory).list();
+        if (listOfFiles == null) throw new IllegalArgumentException("Not a directory: " + directory);
+        if (listOfFiles.length < documents) throw new IllegalArgumentException("Fewer than " + documents + " documents: " + directory);
+        Arrays.sort(listOfFiles);
+        paths = new String[documents];
+        names = Arrays.copyOf(listOfFiles, documents);
+        labels = new boolean[documents];
+        contents = new byte[documents][];
+        try {
+            for(int i = 0; i < documents; i++) {
+                paths[i] = new File(directory, names[i]).getPath();
+                labels[i] = names[i].contains("spam") || names[i].contains("spm");
+                contents[i] = Files.readAllBytes(new File(paths[i]).toPath());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("The system could not read the data repository specified", e);
+        }
+        train();
+        tokenized = new ArrayList<Vec2<String, int[]>>(documents);
+        for(int i = 0; i < documents; i++) tokenized.add(model.ReadTestDocument(names[i], ByteBuffer.wrap(contents[i])));
+        k_best_properties = model.GetInformationGainConclusions(0.9);
+    }
+
+    /**
+     * Implementation of overridden method readTrainFiles.
+     */
+    public int readTrainFiles() {
+        NaiveBayes classifier = new NaiveBayes();
+        for(String path: paths) classifier.ReadTrainFile(path);
+        return classifier.vocabulary.size();
+    }
+
+    /**
+     * Implementation of overridden method readTestFiles.
+     */
+    public int readTestFiles() {
+        int tokens = 0;
+        for(String path: paths) tokens += model.ReadTestFile(path).getYValue().length;
+        return tokens;
+    }
+
+    /**
+     * Implementation of overridden method train.
+     */
+    public Object train() {
+        NaiveBayes classifier = new NaiveBayes();
+        classifier.numOfTrainData = contents.length;
+        for(int i = 0; i < contents.length; i++) classifier.ReadTrainDocument(ByteBuffer.wrap(contents[i]), labels[i]);
+        classifier.GetAPrioriProbabilities();
+        classifier.GetAPrioriEntrophy();
+        classifier.GetAPosterioriProbabilities();
+        model = classifier;
+        return classifier;
+    }
+
+    /**
+     * Implementation of overridden method classify.
+     */
+    public int classify(int document) {
+        if (document == 0) model.reset();
+        model.GetClassificationConclusions(tokenized.get(document), 'T');
+        return model.TP;
+    }
+
+    /**
+     * Implementation of overridden method classifyKBest.
+     */
+    public int classifyKBest(int document) {
+        if (document == 0) model.reset();
+        model.GetKBestClassificationConclusions(tokenized.get(document), k_best_properties, 'T');
+        return model.k_best_TP;
+    }
+
+    /**
+     * Implementation of overridden method selectFeatures.
+     */
+    public Object selectFeatures(double k) {
+        return model.GetInformationGainConclusions(k);
+    }
+}
@@ -0,0 +1,30 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ *  BenchmarkMain.java
+ *  Executable file running the benchmarks; accepting the usual JMH command line options. The GC profiler is always
+ *  attached, reporting the allocation rate of every benchmark, and the results are written as JSON into
+ *  target/jmh-result.json unless another result file is given; so that runs may be compared before upgrades.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class BenchmarkMain {
+    /**
+     *  Main Method.
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(options).addProfiler(GCProfiler.class);
+        if (!options.getResult().hasValue()) builder.result("target/jmh-result.json");
+        if (!options.getResultFormat().hasValue()) builder.resultFormat(ResultFormatType.JSON);
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,58 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ *  EnronSlice.java
+ *  The benchmark state holding a fixed-size slice of the bundled Enron train data; loaded once per trial, together with
+ *  a classifier trained on it. The slice is selected through the directory and documents parameters.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+@State(Scope.Benchmark)
+public class EnronSlice {
+    /**
+     * The directory of the data repository; relative to the working directory.
+     */
+    @Param({"src/enron_train_data"})
+    public String directory;
+
+    /**
+     * The number of documents of the slice.
+     */
+    @Param({"1000", "4000"})
+    public int documents;
+
+    /**
+     * The workload over the slice.
+     */
+    public Workload workload;
+
+    /*
+     *  Local variables.
+     */
+    private int next;
+
+    /**
+     *  A method loading the slice.
+     */
+    @Setup(Level.Trial)
+    public void load() {
+        workload = Workload.create();
+        workload.load(directory, documents);
+        next = 0;
+    }
+
+    /**
+     *  A method cycling through the documents of the slice.
+     *  @return The index of the next document.
+     */
+    public int nextDocument() {
+        int document = next;
+        next = document + 1 == documents ? 0 : document + 1;
+        return document;
+    }
+}
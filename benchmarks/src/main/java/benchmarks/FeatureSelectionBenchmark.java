@@ -0,0 +1,75 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  FeatureSelectionBenchmark.java
+ *  Measures selecting the k-Best features of the classifier trained on the slice; computing the information gain of
+ *  every term. The dimensionality reduction summary printed on every selection is discarded while measuring.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class FeatureSelectionBenchmark {
+    /**
+     * The data percentage to be used from the vocabulary dataset; as the k-best.
+     */
+    @Param({"0.9"})
+    public double kappa;
+
+    /*
+     *  Local variables.
+     */
+    private PrintStream out;
+
+    /**
+     *  A method discarding the standard output of the benchmark.
+     */
+    @Setup(Level.Trial)
+    public void silence() {
+        out = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            public void write(int b) {
+            }
+
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    /**
+     *  A method restoring the standard output.
+     */
+    @TearDown(Level.Trial)
+    public void restore() {
+        System.setOut(out);
+    }
+
+    /**
+     *  Benchmark of GetInformationGainConclusions().
+     */
+    @Benchmark
+    public Object getInformationGainConclusions(EnronSlice slice) {
+        return slice.workload.selectFeatures(kappa);
+    }
+}
@@ -0,0 +1,40 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  ScoringBenchmark.java
+ *  Measures classifying a single tokenized document; cycling through the documents of the slice, so that every
+ *  operation scores the next one.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ScoringBenchmark {
+    /**
+     *  Benchmark of GetClassificationConclusions() per document.
+     */
+    @Benchmark
+    public int getClassificationConclusions(EnronSlice slice) {
+        return slice.workload.classify(slice.nextDocument());
+    }
+
+    /**
+     *  Benchmark of GetKBestClassificationConclusions() per document.
+     */
+    @Benchmark
+    public int getKBestClassificationConclusions(EnronSlice slice) {
+        return slice.workload.classifyKBest(slice.nextDocument());
+    }
+}
@@ -0,0 +1,40 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  TokenizationBenchmark.java
+ *  Measures reading and tokenizing every file of the slice; as train files into a new vocabulary, and as test files
+ *  against the vocabulary of the trained classifier.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class TokenizationBenchmark {
+    /**
+     *  Benchmark of ReadTrainFile() over the slice.
+     */
+    @Benchmark
+    public int readTrainFiles(EnronSlice slice) {
+        return slice.workload.readTrainFiles();
+    }
+
+    /**
+     *  Benchmark of ReadTestFile() over the slice.
+     */
+    @Benchmark
+    public int readTestFiles(EnronSlice slice) {
+        return slice.workload.readTestFiles();
+    }
+}
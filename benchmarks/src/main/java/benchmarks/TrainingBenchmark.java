@@ -0,0 +1,32 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  TrainingBenchmark.java
+ *  Measures training a new classifier on the slice; from the in-memory contents of its documents up to the a posteriori
+ *  probabilities.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class TrainingBenchmark {
+    /**
+     *  Benchmark of the complete training of TrainNaiveBayes() over the slice.
+     */
+    @Benchmark
+    public Object trainNaiveBayes(EnronSlice slice) {
+        return slice.workload.train();
+    }
+}
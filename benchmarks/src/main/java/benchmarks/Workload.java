@@ -0,0 +1,73 @@
+package benchmarks;
+
+/**
+ *  Workload.java
+ *  The operations of the Naive Bayes classifier measured by the benchmarks. JMH does not accept benchmarks in the
+ *  default package, where the classifier resides, and classes of named packages cannot refer to it; so the operations
+ *  are implemented by the EnronWorkload class of the default package, which is instantiated reflectively once and then
+ *  invoked through this interface, without any reflection on the measured paths.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public interface Workload {
+    /**
+     *  A method loading a fixed-size slice of a data repository into memory; the first documents in name order.
+     *  @param directory The directory of the data repository.
+     *  @param documents The number of documents of the slice.
+     */
+    void load(String directory, int documents);
+
+    /**
+     *  A method reading the files of the slice as train files into a new classifier; through ReadTrainFile().
+     *  @return The number of terms of the vocabulary.
+     */
+    int readTrainFiles();
+
+    /**
+     *  A method reading the files of the slice as test files against the trained classifier; through ReadTestFile().
+     *  @return The total number of vocabulary inclusive tokens.
+     */
+    int readTestFiles();
+
+    /**
+     *  A method training a new classifier on the documents of the slice; reading and tokenizing them and computing the
+     *  a priori and a posteriori probabilities, as TrainNaiveBayes() of the TestLogic class does. It also becomes the
+     *  trained classifier of the other operations.
+     *  @return The trained classifier.
+     */
+    Object train();
+
+    /**
+     *  A method classifying a tokenized document of the slice with the trained classifier; through
+     *  GetClassificationConclusions().
+     *  @param document The index of the document; the classification outputs are reset on index zero.
+     *  @return The number of true positives so far.
+     */
+    int classify(int document);
+
+    /**
+     *  A method classifying a tokenized document of the slice with the k-Best features of the trained classifier;
+     *  through GetKBestClassificationConclusions().
+     *  @param document The index of the document; the classification outputs are reset on index zero.
+     *  @return The number of k-Best true positives so far.
+     */
+    int classifyKBest(int document);
+
+    /**
+     *  A method selecting the k-Best features of the trained classifier; through GetInformationGainConclusions().
+     *  @param k The data percentage to be used from the vocabulary dataset; as the k-best.
+     *  @return The set of the ids of the k-Best features.
+     */
+    Object selectFeatures(double k);
+
+    /**
+     *  A factory method instantiating the workload implementation of the default package.
+     *  @return The workload.
+     */
+    static Workload create() {
+        try {
+            return Class.forName("EnronWorkload").asSubclass(Workload.class).newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("The workload implementation could not be instantiated", e);
+        }
+    }
+}
@@ -0,0 +1,577 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ *  ArchiveCorpus.java
+ *  A corpus source streaming its documents straight out of a mail archive, without unpacking it; either a zip archive,
+ *  a tar archive, optionally gzip compressed (.tar.gz, .tgz), or an mbox file, optionally gzip compressed (.mbox.gz,
+ *  .gz). Every file entry of a zip or tar archive is a document named after its path in the archive, and every message
+ *  of an mbox file is a document named after the file and its number (as in "spam.mbox.gz#1"); the category of each
+ *  document is derived from its name, as DirectoryCorpus derives it from filenames. Documents are decompressed ahead of
+ *  time on a reader thread into a bounded queue, so that decompression overlaps with the tokenization of the documents
+ *  handed out; which favors reading the documents in order, as training and evaluation do. Zip entries requested out
+ *  of order are read directly from the archive, concurrently and without disturbing the documents read ahead; so that
+ *  a zip archive is a random access source. A tar or mbox stream is a sequential source instead; reading an earlier
+ *  document restarts the decompression from the beginning of the archive, so that its consumers read it in order, on a
+ *  single thread. Documents are taken from the reader thread by one consumer at a time, waiting for them without
+ *  holding the corpus; so that direct zip reads never wait behind decompression. Should a tar or mbox stream fail,
+ *  every later document fails at once, until the corpus is closed, rather than decompressing it again from the
+ *  beginning up to the failure. Since a stream has no index, opening a tar or mbox archive takes a decompressing pass for the
+ *  document names as well; corpora read out of order, or many times, are better packed into a corpus segment through
+ *  the CorpusPacker class, which accepts archives too. Closing the corpus stops the reader thread and closes the
+ *  archive; which is opened again if the corpus is read later on.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class ArchiveCorpus implements CorpusSource, Closeable {
+    /**
+     * The number of documents decompressed ahead of the one last handed out.
+     */
+    public static final int READ_AHEAD = 64;
+
+    /**
+     * The size of the decompression buffers.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The archive formats.
+     */
+    private static final int ZIP = 0, TAR = 1, MBOX = 2;
+
+    /*
+     *  Local variables.
+     */
+    private final File archive;
+    private final int format;
+    private final boolean compressed;
+    private ArrayList<String> names = new ArrayList<String>();
+    private ZipFile zip;
+    private ArrayList<ZipEntry> entries;
+    private Reader reader;
+    private IOException failure;
+    private final Object taking = new Object();
+    private int expected;
+
+    /**
+     *  A method determining whether a path names an archive; by its extension.
+     *  @param path The path of the file.
+     *  @return true if the file is a zip, tar or mbox archive; as read by this class.
+     */
+    public static boolean isArchive(String path) {
+        String name = path.toLowerCase(Locale.ROOT);
+        return name.endsWith(".zip") || name.endsWith(".tar") || name.endsWith(".tgz") || name.endsWith(".gz") || name.endsWith(".mbox");
+    }
+
+    /**
+     *  Default constructor override; listing the documents of the given archive.
+     *  @param path The path of the archive.
+     *  @throws IOException If the archive could not be read or is malformed.
+     */
+    public ArchiveCorpus(String path) throws IOException {
+        archive = new File(path);
+        String name = archive.getName().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".zip")) {
+            format = ZIP;
+            compressed = false;
+            zip = new ZipFile(archive);
+            entries = new ArrayList<ZipEntry>();
+            for(Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements(); ) {
+                ZipEntry entry = e.nextElement();
+                if (entry.isDirectory()) continue;
+                entries.add(entry);
+                names.add(entry.getName());
+            }
+            return;
+        }
+        format = name.endsWith(".tar") || name.endsWith(".tar.gz") || name.endsWith(".tgz") ? TAR : MBOX;
+        compressed = name.endsWith(".gz") || name.endsWith(".tgz");
+        EntryStream stream = Open();
+        try {
+            while (stream.next()) names.add(stream.name);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Implementation of overridden method size.
+     */
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * Implementation of overridden method getName.
+     */
+    public String getName(int index) {
+        return names.get(index);
+    }
+
+    /**
+     * Implementation of overridden method isSpam.
+     */
+    public boolean isSpam(int index) {
+        String filename = getName(index);
+        return (filename.contains("spam") || filename.contains("spm"));
+    }
+
+    /**
+     * Implementation of overridden method isRandomAccess.
+     */
+    public boolean isRandomAccess() {
+        return format == ZIP;
+    }
+
+    /**
+     * Implementation of overridden method getContent. Taken from the reader thread; unless it is a zip entry other than
+     * the next one of the reader, which is read directly.
+     */
+    public ByteBuffer getContent(int index) throws IOException {
+        if (index < 0 || index >= names.size()) throw new IndexOutOfBoundsException("Document " + index + " of " + names.size());
+        ZipFile zip = Direct(index);
+        if (zip != null) return ByteBuffer.wrap(ReadZipEntry(zip, entries.get(index)));
+        synchronized (taking) {
+            return Take(index);
+        }
+    }
+
+    /**
+     *  A method determining whether a document is read directly from the zip archive; rather than taken from the
+     *  reader thread.
+     *  @return The zip archive; or NULL if the document is taken from the reader thread.
+     */
+    private synchronized ZipFile Direct(int index) throws IOException {
+        if (failure != null) throw new IOException("The system could not read " + archive, failure);
+        return format == ZIP && reader != null && index != expected ? Zip() : null;
+    }
+
+    /**
+     *  A method taking a document from the reader thread; which is restarted at the document if it is behind the
+     *  documents read ahead. To be invoked holding the taking lock; while the corpus itself is held only briefly, and
+     *  never while waiting for the reader thread.
+     */
+    private ByteBuffer Take(int index) throws IOException {
+        Reader reader;
+        ZipFile zip = Direct(index); // the reader may have passed the document meanwhile
+        if (zip != null) return ByteBuffer.wrap(ReadZipEntry(zip, entries.get(index)));
+        synchronized (this) {
+            if (failure != null) throw new IOException("The system could not read " + archive, failure);
+            if (this.reader == null || index < expected) {
+                if (this.reader != null) this.reader.interrupt();
+                this.reader = new Reader(index, format == ZIP ? Zip() : null);
+                this.reader.start();
+            }
+            reader = this.reader;
+        }
+        try {
+            while (true) { // documents skipped over are dropped
+                Document document = reader.queue.take();
+                synchronized (this) {
+                    if (reader != this.reader) throw new IOException("The archive " + archive + " was closed");
+                    if (document.failure != null) {
+                        this.reader = null;
+                        if (format != ZIP) failure = document.failure; // zip entries are read independently of each other
+                        throw new IOException("The system could not read " + archive, document.failure);
+                    }
+                    expected = document.index + 1;
+                }
+                if (document.index == index) return ByteBuffer.wrap(document.content);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Reading " + archive + " was interrupted", e);
+        }
+    }
+
+    /**
+     *  Implementation of overridden method close; stopping the reader thread and closing the archive. A consumer still
+     *  waiting for the reader thread fails; while any earlier failure is forgotten.
+     */
+    public synchronized void close() throws IOException {
+        if (reader != null) {
+            reader.interrupt();
+            try { // the reader may still be reading from the archive
+                reader.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            reader.queue.clear();
+            reader.queue.offer(new Document(-1, null, null)); // waking up a waiting consumer
+        }
+        reader = null;
+        failure = null;
+        expected = 0;
+        if (zip != null) zip.close();
+        zip = null;
+    }
+
+    /**
+     *  A method opening the zip archive; unless it is already open.
+     */
+    private ZipFile Zip() throws IOException {
+        if (zip == null) zip = new ZipFile(archive);
+        return zip;
+    }
+
+    /**
+     *  A document decompressed by the reader thread; or the failure which stopped it.
+     */
+    private static class Document {
+        final int index;
+        final byte[] content;
+        final IOException failure;
+
+        Document(int index, byte[] content, IOException failure) {
+            this.index = index;
+            this.content = content;
+            this.failure = failure;
+        }
+    }
+
+    /**
+     *  The reader thread; decompressing the documents from a given one on, in order, into a bounded queue.
+     */
+    private class Reader extends Thread {
+        final ArrayBlockingQueue<Document> queue = new ArrayBlockingQueue<Document>(READ_AHEAD);
+        final int start;
+        final ZipFile zip;
+
+        Reader(int start, ZipFile zip) {
+            super("archive-reader");
+            setDaemon(true);
+            this.start = start;
+            this.zip = zip;
+        }
+
+        /**
+         * Implementation of overridden method run.
+         */
+        public void run() {
+            try {
+                if (format == ZIP) {
+                    for(int index = start; index < entries.size() && !isInterrupted(); index++) queue.put(new Document(index, ReadZipEntry(zip, entries.get(index)), null));
+                } else {
+                    EntryStream stream = Open();
+                    try {
+                        for(int index = 0; !isInterrupted() && stream.next(); index++) {
+                            if (index >= start) queue.put(new Document(index, stream.content(), null));
+                        }
+                    } finally {
+                        stream.close();
+                    }
+                }
+                queue.put(new Document(-1, null, new EOFException("The archive ended before its last document; has it changed?")));
+            } catch (IOException e) {
+                try {
+                    queue.put(new Document(-1, null, e));
+                } catch (InterruptedException stopped) {
+                    // the corpus moved on
+                }
+            } catch (InterruptedException stopped) {
+                // the corpus moved on
+            }
+        }
+    }
+
+    /**
+     *  A method reading the contents of a zip entry.
+     */
+    private static byte[] ReadZipEntry(ZipFile zip, ZipEntry entry) throws IOException {
+        InputStream in = zip.getInputStream(entry);
+        try {
+            return ReadFully(in, entry.getSize() >= 0 ? entry.getSize() : -1);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     *  A method opening a sequential stream of the entries of a tar or mbox archive; with buffered decompression.
+     */
+    private EntryStream Open() throws IOException {
+        InputStream in = new FileInputStream(archive);
+        try {
+            if (compressed) in = new GZIPInputStream(in, BUFFER_SIZE);
+            in = new BufferedInputStream(in, BUFFER_SIZE);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return format == TAR ? new TarStream(in) : new MboxStream(in, archive.getName());
+    }
+
+    /**
+     *  A method reading the given number of bytes of a stream; or every remaining byte for a negative length.
+     */
+    private static byte[] ReadFully(InputStream in, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) throw new IOException("Document too large: " + length + " bytes");
+        byte[] content = new byte[length >= 0 ? (int) length : 8192];
+        int read = 0;
+        while (length < 0 || read < length) {
+            if (read == content.length) content = Arrays.copyOf(content, content.length * 2);
+            int n = in.read(content, read, content.length - read);
+            if (n < 0) {
+                if (length >= 0) throw new EOFException("Truncated archive entry");
+                break;
+            }
+            read += n;
+        }
+        return read == content.length ? content : Arrays.copyOf(content, read);
+    }
+
+    /**
+     *  A sequential stream of the entries of an archive.
+     */
+    private static abstract class EntryStream {
+        final InputStream in;
+        String name;
+
+        EntryStream(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         *  A method advancing to the next document; skipping the rest of the current one.
+         *  @return false if there are no more documents.
+         */
+        abstract boolean next() throws IOException;
+
+        /**
+         *  A method reading the contents of the current document.
+         */
+        abstract byte[] content() throws IOException;
+
+        void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     *  A stream of the regular file entries of a tar archive; of the ustar and GNU formats, including long names and
+     *  pax path records.
+     */
+    private static class TarStream extends EntryStream {
+        final byte[] header = new byte[512];
+        long remaining, padding;
+        String longName;
+
+        TarStream(InputStream in) {
+            super(in);
+        }
+
+        /**
+         * Implementation of overridden method next.
+         */
+        boolean next() throws IOException {
+            while (true) {
+                Skip(remaining + padding);
+                remaining = padding = 0;
+                if (!ReadHeader()) return false;
+                long size = Octal(124, 12);
+                char type = (char) header[156];
+                if (type == 'L' || type == 'x') { // the name of the following entry
+                    String record = new String(ReadFully(in, size), Charset.forName("UTF-8"));
+                    Skip(Padding(size));
+                    longName = type == 'L' ? Trim(record) : PaxPath(record, longName);
+                    continue;
+                }
+                String entryName = longName != null ? longName : Name();
+                longName = null;
+                remaining = size;
+                padding = Padding(size);
+                if (type == '0' || type == '\0' || type == '7') {
+                    name = entryName;
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Implementation of overridden method content.
+         */
+        byte[] content() throws IOException {
+            byte[] content = ReadFully(in, remaining);
+            remaining = 0;
+            return content;
+        }
+
+        /**
+         *  A method reading a header block; false at the end of the archive.
+         */
+        boolean ReadHeader() throws IOException {
+            int read = 0;
+            while (read < header.length) {
+                int n = in.read(header, read, header.length - read);
+                if (n < 0) {
+                    if (read == 0) return false;
+                    throw new EOFException("Truncated tar header");
+                }
+                read += n;
+            }
+            for(byte b: header) {
+                if (b != 0) return true;
+            }
+            return false; // a zero block ends the archive
+        }
+
+        /**
+         *  A method forming the name of an entry from its header; with the ustar prefix, if any.
+         */
+        String Name() {
+            String name = Field(0, 100);
+            boolean ustar = header[257] == 'u' && header[258] == 's' && header[259] == 't' && header[260] == 'a' && header[261] == 'r';
+            String prefix = ustar ? Field(345, 155) : "";
+            return prefix.isEmpty() ? name : prefix + "/" + name;
+        }
+
+        String Field(int offset, int length) {
+            int end = offset;
+            while (end < offset + length && header[end] != 0) end++;
+            return new String(header, offset, end - offset, Charset.forName("UTF-8"));
+        }
+
+        long Octal(int offset, int length) throws IOException {
+            if ((header[offset] & 0x80) != 0) { // base-256 for large sizes
+                long value = header[offset] & 0x7F;
+                for(int i = offset + 1; i < offset + length; i++) value = (value << 8) | (header[i] & 0xFF);
+                return value;
+            }
+            String field = Field(offset, length).trim();
+            try {
+                return field.isEmpty() ? 0 : Long.parseLong(field, 8);
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed tar header: " + field);
+            }
+        }
+
+        static long Padding(long size) {
+            return (512 - size % 512) % 512;
+        }
+
+        static String Trim(String name) {
+            int end = name.indexOf('\0');
+            return end < 0 ? name : name.substring(0, end);
+        }
+
+        /**
+         *  A method taking the path of a pax extended header; as "length path=value" records.
+         */
+        static String PaxPath(String records, String otherwise) {
+            for(String record: records.split("\n")) {
+                int key = record.indexOf(' ');
+                if (key >= 0 && record.startsWith("path=", key + 1)) return record.substring(key + 6);
+            }
+            return otherwise;
+        }
+
+        void Skip(long count) throws IOException {
+            while (count > 0) {
+                long skipped = in.skip(count);
+                if (skipped <= 0) {
+                    if (in.read() < 0) throw new EOFException("Truncated tar entry");
+                    skipped = 1;
+                }
+                count -= skipped;
+            }
+        }
+    }
+
+    /**
+     *  A stream of the messages of an mbox file; each one starting after a "From " separator line, which is not part
+     *  of the message.
+     */
+    private static class MboxStream extends EntryStream {
+        final String file;
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        byte[] message = new byte[8192];
+        int position, limit, lineStart, messageLength, count;
+        boolean started, ended;
+
+        MboxStream(InputStream in, String file) {
+            super(in);
+            this.file = file;
+        }
+
+        /**
+         * Implementation of overridden method next. The message is read as a whole; since its end is only known at
+         * the following separator line.
+         */
+        boolean next() throws IOException {
+            if (!started) { // skipping to the first separator line
+                started = true;
+                messageLength = 0;
+                while (ReadLine() && !Separator()) messageLength = 0;
+            }
+            if (ended) return false;
+            messageLength = 0;
+            while (ReadLine()) {
+                if (Separator()) { // the separator line is not part of the message
+                    messageLength = lineStart;
+                    name = file + "#" + (++count);
+                    return true;
+                }
+            }
+            ended = true;
+            if (messageLength == 0) return false;
+            name = file + "#" + (++count);
+            return true;
+        }
+
+        /**
+         * Implementation of overridden method content.
+         */
+        byte[] content() {
+            return Arrays.copyOf(message, messageLength);
+        }
+
+        /**
+         *  A method appending a line, with its terminator, to the message; false at the end of the file.
+         */
+        boolean ReadLine() throws IOException {
+            lineStart = messageLength;
+            while (true) {
+                if (position == limit) {
+                    limit = in.read(buffer, 0, buffer.length);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        return messageLength > lineStart;
+                    }
+                }
+                int end = position;
+                while (end < limit && buffer[end] != '\n') end++;
+                boolean terminated = end < limit;
+                if (terminated) end++;
+                int length = end - position;
+                if (messageLength + length > message.length) message = Arrays.copyOf(message, Math.max(message.length * 2, messageLength + length));
+                System.arraycopy(buffer, position, message, messageLength, length);
+                messageLength += length;
+                position = end;
+                if (terminated) return true;
+            }
+        }
+
+        /**
+         *  A method determining whether the last line read is a "From " separator line.
+         */
+        boolean Separator() {
+            return messageLength - lineStart >= 5 && message[lineStart] == 'F' && message[lineStart + 1] == 'r'
+                    && message[lineStart + 2] == 'o' && message[lineStart + 3] == 'm' && message[lineStart + 4] == ' ';
+        }
+    }
+}
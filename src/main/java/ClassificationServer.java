@@ -0,0 +1,211 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ *  ClassificationServer.java
+ *  Executable long-running classification service around a trained Naive Bayes model snapshot. Messages are read
+ *  either from a local socket or from the standard input, using a line protocol: the lines of a message are followed
+ *  by a line consisting of a single "."; and each message is answered by a line "SPAM &lt;log-odds&gt;" or
+ *  "HAM &lt;log-odds&gt;". A line "STATS" is answered by the tail latency statistics instead. A message which could not
+ *  be classified, or exceeds the largest message length, is answered by a line "ERROR &lt;description&gt;"; and the
+ *  stream is served further. Concurrent requests are micro-batched into the scoring path; and connections are handled
+ *  by virtual threads when the runtime supports them.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class ClassificationServer {
+    /**
+     * The largest message length in characters; the rest of a longer message is skipped rather than read into memory.
+     */
+    public static final int MAX_MESSAGE_LENGTH = 1 << 20;
+
+    /*
+     *  Local variables.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private final NaiveBayes classifier;
+    private final MicroBatcher batcher;
+
+    /**
+     *  Default constructor override.
+     *  @param classifier The trained classifier.
+     *  @param maxBatchSize The largest number of requests scored in one batch.
+     */
+    public ClassificationServer(NaiveBayes classifier, int maxBatchSize) {
+        this.classifier = classifier;
+        this.batcher = new MicroBatcher(classifier, 16 * maxBatchSize, maxBatchSize);
+    }
+
+    /**
+     *  A method creating an executor running every task on its own virtual thread when the runtime supports them,
+     *  otherwise on a cached pool of platform threads.
+     *  @return The connection handling executor.
+     */
+    public static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) { // virtual threads are not available before Java 21
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     *  A method serving a single stream of requests until it ends.
+     *  @param input The stream of requests.
+     *  @param output The stream of responses.
+     *  @throws IOException If reading or writing failed.
+     *  @throws InterruptedException If interrupted while waiting for a classification.
+     */
+    public void Serve(InputStream input, OutputStream output) throws IOException, InterruptedException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, UTF8));
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(output, UTF8), false);
+        StringBuilder message = new StringBuilder(), buffer = new StringBuilder();
+        char[] text = new char[4096];
+        boolean oversized = false;
+        String line;
+        while ((line = ReadLine(reader, buffer, MAX_MESSAGE_LENGTH)) != null) {
+            if (message.length() == 0 && !oversized && line.equals("STATS")) {
+                writer.println(GetStatistics());
+            } else if (line.equals(".")) {
+                if (oversized) {
+                    writer.println("ERROR The message exceeds " + MAX_MESSAGE_LENGTH + " characters");
+                } else {
+                    if (text.length < message.length()) text = new char[Math.max(message.length(), text.length * 2)];
+                    message.getChars(0, message.length(), text, 0);
+                    writer.println(Classify(classifier.ReadTestDocument(null, text, 0, message.length()).getYValue()));
+                }
+                message.setLength(0);
+                oversized = false;
+            } else if (oversized || message.length() + line.length() + 1 > MAX_MESSAGE_LENGTH) {
+                message.setLength(0); // the rest of the message is skipped
+                oversized = true;
+                continue;
+            } else {
+                message.append(line).append('\n');
+                continue;
+            }
+            writer.flush();
+        }
+        writer.flush();
+    }
+
+    /**
+     *  A method classifying a tokenized message through the micro-batcher.
+     *  @return The response line; an error description if the message could not be classified.
+     *  @throws InterruptedException If interrupted while waiting for the classification.
+     */
+    private String Classify(int[] tokens) throws InterruptedException {
+        try {
+            double logOdds = batcher.submit(tokens).get();
+            return (logOdds < 0 ? "HAM " : "SPAM ") + logOdds;
+        } catch (ExecutionException e) {
+            return "ERROR Classification failed: " + e.getCause();
+        } catch (CancellationException e) {
+            return "ERROR Classification cancelled";
+        } catch (IllegalStateException e) { // shut down
+            return "ERROR " + e.getMessage();
+        }
+    }
+
+    /**
+     *  A method reading a line; keeping at most one character more than the given length, and skipping the rest.
+     *  Lines end at a line feed, optionally preceded by a carriage return.
+     *  @return The line; or NULL at the end of the stream.
+     */
+    private static String ReadLine(BufferedReader reader, StringBuilder buffer, int length) throws IOException {
+        buffer.setLength(0);
+        int c = reader.read();
+        if (c < 0) return null;
+        for(; c >= 0 && c != '\n'; c = reader.read()) {
+            if (buffer.length() <= length) buffer.append((char) c);
+        }
+        if (buffer.length() > 0 && buffer.charAt(buffer.length() - 1) == '\r') buffer.setLength(buffer.length() - 1);
+        return buffer.toString();
+    }
+
+    /**
+     *  A method listening on a loopback port; serving every connection on the given executor.
+     *  @param port The port to listen on.
+     *  @param connections The connection handling executor.
+     *  @throws IOException If the port could not be bound.
+     */
+    public void Listen(int port, ExecutorService connections) throws IOException {
+        ServerSocket server = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        System.err.println("Listening on " + server.getLocalSocketAddress());
+        try {
+            while (true) {
+                final Socket socket = server.accept();
+                connections.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            Serve(socket.getInputStream(), socket.getOutputStream());
+                        } catch (IOException e) {
+                            System.err.println("Connection failed: " + e.getMessage());
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            try {
+                                socket.close();
+                            } catch (IOException exception) {
+                                exception.printStackTrace();
+                            }
+                        }
+                    }
+                });
+            }
+        } finally {
+            server.close();
+        }
+    }
+
+    /**
+     *  A method summarizing the tail latency of the requests served.
+     *  @return The latency statistics.
+     */
+    public String GetStatistics() {
+        return "STATS " + batcher.getLatencies() + String.format(" batch=%.2f", batcher.getMeanBatchSize());
+    }
+
+    /**
+     *  A method stopping the scoring thread.
+     */
+    public void shutdown() {
+        batcher.shutdown();
+    }
+
+    /**
+     *  Main Method.
+     *  The metrics are published over JMX; and exported every ten seconds into the file given by the metrics.snapshot
+     *  system property, if set.
+     *  @param args The model snapshot path; optionally followed by a port, otherwise requests are read from the standard input.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: ClassificationServer <model snapshot> [port]");
+            System.exit(1);
+        }
+        final ClassificationServer server = new ClassificationServer(NaiveBayes.LoadModel(args[0]), 64);
+        MetricsRegistry.DEFAULT.register("server.latency", server.batcher.getLatencies());
+        MetricsRegistry.DEFAULT.publish();
+        if (System.getProperty("metrics.snapshot") != null) MetricsRegistry.DEFAULT.startSnapshots(System.getProperty("metrics.snapshot"), 10);
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            public void run() {
+                System.err.println(server.GetStatistics());
+            }
+        });
+        if (args.length == 2) server.Listen(Integer.parseInt(args[1]), newConnectionExecutor());
+        else server.Serve(System.in, System.out);
+    }
+}
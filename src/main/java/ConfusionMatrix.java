@@ -0,0 +1,81 @@
+/**
+ *  ConfusionMatrix.java
+ *  Represents the confusion matrix of a binary spam classification; together with the statistics derived from it.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class ConfusionMatrix {
+    /*
+     *  Local variables.
+     */
+    protected long TP, TN, FP, FN;
+
+    /**
+     *  A method recording a classification.
+     *  @param predictedSpam true if the document was classified as spam.
+     *  @param actualSpam true if the document is spam.
+     */
+    public void add(boolean predictedSpam, boolean actualSpam) {
+        if (predictedSpam) {
+            if (actualSpam) TP++; /* True Positive */ else FP++; /* False Positive */
+        } else {
+            if (!actualSpam) TN++; /* True Negative */ else FN++; /* False Negative */
+        }
+    }
+
+    /**
+     *  A method adding the counts of another confusion matrix into this one.
+     *  @param other The confusion matrix to be added.
+     */
+    public void add(ConfusionMatrix other) {
+        TP += other.TP; TN += other.TN; FP += other.FP; FN += other.FN;
+    }
+
+    /**
+     *  Getter for the number of classifications.
+     *  @return The number of classifications recorded.
+     */
+    public long getTotal() {
+        return TP + TN + FP + FN;
+    }
+
+    /**
+     *  Getter for the accuracy.
+     *  @return The ratio of right predictions.
+     */
+    public double getAccuracy() {
+        return (TP + TN) / (double) getTotal();
+    }
+
+    /**
+     *  Getter for the precision.
+     *  @return The ratio of true positives among the positive predictions.
+     */
+    public double getPrecision() {
+        return TP / (double) (TP + FP);
+    }
+
+    /**
+     *  Getter for the recall.
+     *  @return The ratio of true positives among the spam documents.
+     */
+    public double getRecall() {
+        return TP / (double) (TP + FN);
+    }
+
+    /**
+     *  Getter for the F1 score.
+     *  @return The harmonic mean of precision and recall.
+     */
+    public double getF1() {
+        double precision = getPrecision(), recall = getRecall();
+        return 2 * precision * recall / (precision + recall);
+    }
+
+    /**
+     *  Implementation of overridden method toString.
+     */
+    public String toString() {
+        return String.format("TP=%d TN=%d FP=%d FN=%d accuracy=%.4f precision=%.4f recall=%.4f F1=%.4f",
+                TP, TN, FP, FN, getAccuracy(), getPrecision(), getRecall(), getF1());
+    }
+}
@@ -0,0 +1,78 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ *  CorpusChunk.java
+ *  A contiguous chunk of the documents of a sequential corpus source, read in order into memory on the constructing
+ *  thread; so that the chunks of a corpus such as a tar or mbox archive may be processed by several workers, while the
+ *  corpus itself is read once, in order, by a single thread. The chunk keeps the indices, the names and the categories
+ *  of the corpus; only the contents of its own documents may be read, in any order. A document which could not be read
+ *  fails again when its contents are requested.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class CorpusChunk implements CorpusSource {
+    /*
+     *  Local variables.
+     */
+    private final CorpusSource corpus;
+    private final int from;
+    private final ByteBuffer[] contents;
+    private final IOException[] failures;
+
+    /**
+     *  Default constructor override; reading the documents of the chunk.
+     *  @param corpus The corpus of the documents.
+     *  @param from The index of the first document of the chunk.
+     *  @param to The index after the last document of the chunk.
+     */
+    public CorpusChunk(CorpusSource corpus, int from, int to) {
+        this.corpus = corpus;
+        this.from = from;
+        this.contents = new ByteBuffer[to - from];
+        this.failures = new IOException[to - from];
+        for(int document = from; document < to; document++) {
+            try {
+                contents[document - from] = corpus.getContent(document);
+            } catch (IOException e) {
+                failures[document - from] = e;
+            }
+        }
+    }
+
+    /**
+     * Implementation of overridden method size.
+     */
+    public int size() {
+        return corpus.size();
+    }
+
+    /**
+     * Implementation of overridden method getName.
+     */
+    public String getName(int index) {
+        return corpus.getName(index);
+    }
+
+    /**
+     * Implementation of overridden method isSpam.
+     */
+    public boolean isSpam(int index) {
+        return corpus.isSpam(index);
+    }
+
+    /**
+     * Implementation of overridden method getContent.
+     */
+    public ByteBuffer getContent(int index) throws IOException {
+        if (index < from || index >= from + contents.length) throw new IndexOutOfBoundsException("Document " + index + " outside the chunk");
+        if (failures[index - from] != null) throw failures[index - from];
+        return contents[index - from].duplicate();
+    }
+
+    /**
+     * Implementation of overridden method isRandomAccess.
+     */
+    public boolean isRandomAccess() {
+        return true;
+    }
+}
@@ -0,0 +1,71 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ *  CorpusPacker.java
+ *  Executable file packing every document of a directory, or of a mail archive, into a single corpus segment; so that
+ *  a corpus of many tiny files can be read through one memory mapping. For further information on the format also check the
+ *  documentation of the CorpusSegment class.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class CorpusPacker {
+    /**
+     *  A method packing every document of a corpus source into a corpus segment.
+     *  @param corpus The corpus source to be packed.
+     *  @param segment The path of the corpus segment to be written.
+     *  @throws IOException If a document could not be read or the segment could not be written.
+     */
+    public static void pack(CorpusSource corpus, String segment) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        try {
+            file.setLength(0);
+            FileChannel channel = file.getChannel();
+            channel.position(CorpusSegment.HEADER_LENGTH);
+            long[] offsets = new long[corpus.size()];
+            int[] lengths = new int[corpus.size()];
+            for(int i = 0; i < corpus.size(); i++) {
+                ByteBuffer content = corpus.getContent(i);
+                offsets[i] = channel.position();
+                lengths[i] = content.remaining();
+                while (content.hasRemaining()) channel.write(content);
+            }
+            long indexOffset = channel.position();
+            Charset utf8 = Charset.forName("UTF-8");
+            ByteBuffer entry = ByteBuffer.allocate(15 + 0xFFFF);
+            for(int i = 0; i < corpus.size(); i++) {
+                byte[] name = corpus.getName(i).getBytes(utf8);
+                if (name.length > 0xFFFF) throw new IOException("Document name too long: " + corpus.getName(i));
+                entry.clear();
+                entry.putLong(offsets[i]).putInt(lengths[i]).put((byte) (corpus.isSpam(i) ? 1 : 0));
+                entry.putShort((short) name.length).put(name);
+                entry.flip();
+                while (entry.hasRemaining()) channel.write(entry);
+            }
+            ByteBuffer header = ByteBuffer.allocate(CorpusSegment.HEADER_LENGTH);
+            header.putInt(CorpusSegment.MAGIC).putInt(CorpusSegment.VERSION).putInt(corpus.size()).putLong(indexOffset);
+            header.flip();
+            channel.position(0);
+            while (header.hasRemaining()) channel.write(header);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     *  Main Method.
+     *  @param args The directory or the mail archive to be packed and the path of the corpus segment to be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: CorpusPacker <directory|archive> <segment>");
+            System.exit(1);
+        }
+        CorpusSource corpus = ShardedTraining.OpenCorpus(args[0]);
+        pack(corpus, args[1]);
+        if (corpus instanceof ArchiveCorpus) ((ArchiveCorpus) corpus).close();
+        System.out.println("Packed " + corpus.size() + " documents of " + args[0] + " into " + args[1]);
+    }
+}
@@ -0,0 +1,130 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+
+/**
+ *  CorpusSegment.java
+ *  A corpus source reading a packed corpus segment, as written by CorpusPacker, through memory mapping. The segment
+ *  consists of a header (magic number, format version, number of documents and offset of the index), the contents of
+ *  every document one after the other, and an index holding the offset, length, category and name of each document.
+ *  Documents are handed out as zero-copy slices of the mapped file.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class CorpusSegment implements CorpusSource {
+    /**
+     * The magic number of corpus segments; "NBSG" in ASCII.
+     */
+    public static final int MAGIC = 0x4E425347;
+
+    /**
+     * The format version of corpus segments.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The length of the segment header in bytes.
+     */
+    public static final int HEADER_LENGTH = 20;
+
+    /**
+     * The largest region mapped at once; since a single mapping may not exceed 2GB.
+     */
+    private static final long MAX_REGION_LENGTH = Integer.MAX_VALUE;
+
+    /*
+     *  Local variables.
+     */
+    private String[] names;
+    private boolean[] spam;
+    private int[] regionOf, offsets, lengths;
+    private ArrayList<MappedByteBuffer> regions;
+
+    /**
+     *  Default constructor override; mapping the given segment.
+     *  @param path The path of the packed corpus segment.
+     *  @throws IOException If the segment could not be read or is malformed.
+     */
+    public CorpusSegment(String path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(new File(path), "r");
+        try {
+            FileChannel channel = file.getChannel();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_LENGTH);
+            if (header.getInt() != MAGIC) throw new IOException("Not a corpus segment: " + path);
+            if (header.getInt() != VERSION) throw new IOException("Unsupported corpus segment version: " + path);
+            int count = header.getInt();
+            long indexOffset = header.getLong();
+            ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, channel.size() - indexOffset);
+            Charset utf8 = Charset.forName("UTF-8");
+            names = new String[count];
+            spam = new boolean[count];
+            regionOf = new int[count];
+            offsets = new int[count];
+            lengths = new int[count];
+            regions = new ArrayList<MappedByteBuffer>();
+            long regionStart = HEADER_LENGTH, regionEnd = HEADER_LENGTH;
+            long[] absoluteOffsets = new long[count];
+            for(int i = 0; i < count; i++) {
+                absoluteOffsets[i] = index.getLong();
+                lengths[i] = index.getInt();
+                spam[i] = index.get() != 0;
+                byte[] name = new byte[index.getShort() & 0xFFFF];
+                index.get(name);
+                names[i] = new String(name, utf8);
+                long end = absoluteOffsets[i] + lengths[i];
+                if (end - regionStart > MAX_REGION_LENGTH) { // documents never straddle two regions
+                    regions.add(channel.map(FileChannel.MapMode.READ_ONLY, regionStart, regionEnd - regionStart));
+                    regionStart = absoluteOffsets[i];
+                }
+                regionOf[i] = regions.size();
+                offsets[i] = (int) (absoluteOffsets[i] - regionStart);
+                regionEnd = Math.max(regionEnd, end);
+            }
+            regions.add(channel.map(FileChannel.MapMode.READ_ONLY, regionStart, regionEnd - regionStart));
+        } finally { // mappings remain valid after the channel is closed
+            file.close();
+        }
+    }
+
+    /**
+     * Implementation of overridden method size.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Implementation of overridden method getName.
+     */
+    public String getName(int index) {
+        return names[index];
+    }
+
+    /**
+     * Implementation of overridden method isSpam.
+     */
+    public boolean isSpam(int index) {
+        return spam[index];
+    }
+
+    /**
+     * Implementation of overridden method getContent.
+     */
+    public ByteBuffer getContent(int index) {
+        ByteBuffer content = regions.get(regionOf[index]).duplicate();
+        content.position(offsets[index]);
+        content.limit(offsets[index] + lengths[index]);
+        return content.slice();
+    }
+
+    /**
+     * Implementation of overridden method isRandomAccess.
+     */
+    public boolean isRandomAccess() {
+        return true;
+    }
+}
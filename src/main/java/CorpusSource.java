@@ -0,0 +1,46 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ *  CorpusSource.java
+ *  Represents a source of labelled documents; such as a directory of text files, a packed corpus segment or a mail
+ *  archive. Most sources may be read in any order, by several threads at once; while the documents of a sequential
+ *  source, such as a compressed stream, are only read efficiently in order, by a single thread.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public interface CorpusSource {
+    /**
+     * Getter for the number of documents.
+     * @return The number of documents of the corpus.
+     */
+    int size();
+
+    /**
+     * Getter for the name of a document.
+     * @param index The index of the document.
+     * @return The name of the document.
+     */
+    String getName(int index);
+
+    /**
+     * Getter for the category of a document.
+     * @param index The index of the document.
+     * @return true if the document is spam.
+     */
+    boolean isSpam(int index);
+
+    /**
+     * Getter for the contents of a document.
+     * @param index The index of the document.
+     * @return The encoded contents of the document; between the position and the limit of the buffer.
+     * @throws IOException If the document could not be read.
+     */
+    ByteBuffer getContent(int index) throws IOException;
+
+    /**
+     * Getter for the access pattern of the source.
+     * @return true if the documents may be read in any order, concurrently, at no extra cost; false if they should be
+     * read in order by a single thread.
+     */
+    boolean isRandomAccess();
+}
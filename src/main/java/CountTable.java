@@ -0,0 +1,47 @@
+import java.util.ArrayList;
+
+/**
+ *  CountTable.java
+ *  Represents a private partial count table built by one training worker; holding the per-token appearences
+ *  together with the category counters, so that several workers may read train files concurrently and their
+ *  tables be merged into the shared vocabulary afterwards.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class CountTable {
+    /**
+     * The term dictionary of this partial table; using the same layout as the vocabulary.
+     */
+    protected TermDictionary vocabulary;
+
+    /**
+     * The term ids of every document read into this table, in reading order; or NULL if they are not collected.
+     */
+    protected ArrayList<int[]> documents;
+
+    /**
+     * The frequency sketch admitting terms into the term dictionary of this table; or NULL for admitting every term.
+     */
+    protected FrequencySketch sketch;
+
+    /*
+     * Local variables.
+     */
+    protected int spam_counter, appearences;
+    protected long tokens;
+
+    /**
+     * Default constructor override; creating an empty partial table.
+     */
+    public CountTable() {
+        this(new TermDictionary());
+    }
+
+    /**
+     * Overloaded constructor wrapping an existing term dictionary.
+     * @param vocabulary The term dictionary to be updated.
+     */
+    public CountTable(TermDictionary vocabulary) {
+        this.vocabulary = vocabulary;
+        spam_counter = appearences = 0;
+    }
+}
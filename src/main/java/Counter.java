@@ -0,0 +1,44 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  Counter.java
+ *  A lock-free monotonic counter; striped over the recording threads, so that concurrent increments do not contend on
+ *  a single memory location. Its rate is reported per second since its creation.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class Counter implements CounterMXBean {
+    /*
+     *  Local variables.
+     */
+    private final LongAdder count = new LongAdder();
+    private final long created = System.nanoTime();
+
+    /**
+     * A method incrementing the counter by one.
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * A method incrementing the counter.
+     * @param delta The non negative increment.
+     */
+    public void add(long delta) {
+        count.add(delta);
+    }
+
+    /**
+     * Implementation of overridden method getCount.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Implementation of overridden method getRate.
+     */
+    public double getRate() {
+        return count.sum() / Math.max((System.nanoTime() - created) / 1e9, 1e-9);
+    }
+}
@@ -0,0 +1,18 @@
+/**
+ *  CounterMXBean.java
+ *  The management interface of a counter; published over JMX by the MetricsRegistry class.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public interface CounterMXBean {
+    /**
+     * Getter for the count.
+     * @return The total of all increments.
+     */
+    long getCount();
+
+    /**
+     * Getter for the rate of the counter.
+     * @return The count per second since the counter was created.
+     */
+    double getRate();
+}
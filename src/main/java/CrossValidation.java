@@ -0,0 +1,169 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ *  CrossValidation.java
+ *  A k-fold cross-validation engine. The corpus is read and tokenized once into term id sequences over a shared term
+ *  dictionary; document i belonging to fold i mod k. Every fold is then trained and evaluated concurrently on its own
+ *  Naive Bayes instance, holding only the terms of its train documents, with fold-local counts and confusion matrices;
+ *  for the simple model as well as the k-Best feature selection model.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class CrossValidation {
+    /*
+     *  Local variables.
+     */
+    private final int folds;
+    private final double kappa;
+    private final TermDictionary terms;
+    private final int[][] documents;
+    private final boolean[] spam;
+    private ConfusionMatrix[] simple, k_best;
+
+    /**
+     *  Default constructor override; reading and tokenizing the corpus.
+     *  @param corpus The labelled corpus.
+     *  @param folds The number of folds.
+     *  @param kappa The data percentage to be used from the vocabulary dataset; as the k-best.
+     *  @throws IOException If a document could not be read.
+     */
+    public CrossValidation(CorpusSource corpus, int folds, double kappa) throws IOException {
+        if (folds < 2 || folds > corpus.size()) throw new IllegalArgumentException("Invalid number of folds: " + folds);
+        this.folds = folds;
+        this.kappa = kappa;
+        this.terms = new TermDictionary();
+        this.documents = new int[corpus.size()][];
+        this.spam = new boolean[corpus.size()];
+        Tokenizer tokenizer = new DefaultTokenizer();
+        for(int i = 0; i < corpus.size(); i++) {
+            TermIdCollector collector = new TermIdCollector(terms, true);
+            tokenizer.tokenize(corpus.getContent(i), collector);
+            documents[i] = collector.toArray();
+            spam[i] = corpus.isSpam(i);
+        }
+    }
+
+    /**
+     *  A method training and evaluating every fold on a fixed worker pool.
+     *  @param workers The number of folds processed concurrently.
+     */
+    public void Run(int workers) {
+        simple = new ConfusionMatrix[folds];
+        k_best = new ConfusionMatrix[folds];
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            ArrayList<Future<ConfusionMatrix[]>> results = new ArrayList<Future<ConfusionMatrix[]>>();
+            for(int fold = 0; fold < folds; fold++) {
+                final int test_fold = fold;
+                results.add(pool.submit(new Callable<ConfusionMatrix[]>() {
+                    public ConfusionMatrix[] call() {
+                        return RunFold(test_fold);
+                    }
+                }));
+            }
+            for(int fold = 0; fold < folds; fold++) {
+                ConfusionMatrix[] matrices = results.get(fold).get();
+                simple[fold] = matrices[0];
+                k_best[fold] = matrices[1];
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Cross-validation was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Cross-validation failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     *  A method training a classifier on every fold but the given one; and evaluating it on the given fold.
+     *  @param test_fold The fold held out for testing.
+     *  @return The confusion matrices of the simple and the k-Best feature selection models.
+     */
+    protected ConfusionMatrix[] RunFold(int test_fold) {
+        NaiveBayes classifier = new NaiveBayes();
+        TermDictionary vocabulary = classifier.vocabulary;
+        int[] local = new int[terms.size()]; // shared term ids to fold-local ones
+        Arrays.fill(local, -1);
+        for(int i = 0; i < documents.length; i++) {
+            if (i % folds == test_fold) continue;
+            classifier.numOfTrainData++;
+            if (spam[i]) classifier.spam_counter++;
+            for(int term: documents[i]) {
+                int id = local[term];
+                if (id < 0) id = local[term] = vocabulary.add(terms.terms[term], terms.hashes[term]);
+                if (vocabulary.counts[id]++ > 0) classifier.appearences++; // the first appearence is not counted
+                if (spam[i]) vocabulary.spamCounts[id]++;
+            }
+        }
+        classifier.GetAPrioriProbabilities();
+        classifier.GetAPrioriEntrophy();
+        classifier.GetAPosterioriProbabilities();
+        BitSet k_best_properties = TopKSelector.select(classifier.GetInformationGain(), vocabulary.size(), classifier.GetKBestCount(kappa));
+
+        ConfusionMatrix simpleMatrix = new ConfusionMatrix(), k_bestMatrix = new ConfusionMatrix();
+        int[] tokens = new int[256];
+        for(int i = test_fold; i < documents.length; i += folds) {
+            if (tokens.length < documents[i].length) tokens = new int[documents[i].length];
+            int numOfTokens = 0;
+            for(int term: documents[i]) {
+                if (local[term] >= 0) tokens[numOfTokens++] = local[term];
+            }
+            int[] containingTokens = Arrays.copyOf(tokens, numOfTokens);
+            simpleMatrix.add(classifier.GetLogOdds(containingTokens) >= 0, spam[i]);
+            k_bestMatrix.add(classifier.GetKBestLogOdds(containingTokens, k_best_properties) >= 0, spam[i]);
+        }
+        return new ConfusionMatrix[] {simpleMatrix, k_bestMatrix};
+    }
+
+    /**
+     *  Getter for the per-fold confusion matrices of the simple model.
+     *  @return The confusion matrix of every fold.
+     */
+    public ConfusionMatrix[] getSimpleResults() {
+        return simple;
+    }
+
+    /**
+     *  Getter for the per-fold confusion matrices of the k-Best feature selection model.
+     *  @return The confusion matrix of every fold.
+     */
+    public ConfusionMatrix[] getKBestResults() {
+        return k_best;
+    }
+
+    /**
+     *  Method outputting the per-fold and aggregate statistics to default output stream (System.out).
+     */
+    public void OutputResults() {
+        OutputResults("SIMPLE NAIVE BAYES", simple);
+        OutputResults("USING FEATURE SELECTION", k_best);
+    }
+
+    /**
+     *  Method outputting the per-fold statistics, their pooled confusion matrix and the mean and standard deviation of
+     *  the accuracy across folds.
+     */
+    private void OutputResults(String title, ConfusionMatrix[] matrices) {
+        System.out.println("*** " + title + " (" + folds + "-FOLD CROSS-VALIDATION) ***");
+        ConfusionMatrix pooled = new ConfusionMatrix();
+        double sum = 0.0, squares = 0.0;
+        for(int fold = 0; fold < folds; fold++) {
+            System.out.println("Fold " + (fold + 1) + ": " + matrices[fold]);
+            pooled.add(matrices[fold]);
+            sum += matrices[fold].getAccuracy();
+            squares += matrices[fold].getAccuracy() * matrices[fold].getAccuracy();
+        }
+        double mean = sum / folds, deviation = Math.sqrt(Math.max(0.0, squares / folds - mean * mean));
+        System.out.println("Pooled: " + pooled);
+        System.out.println(String.format("Accuracy: %.4f +/- %.4f\n", mean, deviation));
+    }
+}
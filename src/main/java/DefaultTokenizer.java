@@ -0,0 +1,118 @@
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ *  DefaultTokenizer.java
+ *  A single-pass tokenizer; splitting text into lines, at line feeds and carriage returns, trimming every line of
+ *  whitespace and control characters and splitting it on spaces alone, exactly as reading lines and splitting them on
+ *  " " does; then stripping a trailing non-letter character from every token and dropping tokens shorter than two
+ *  characters. Hash codes are computed while scanning; and plain ASCII bytes are
+ *  tokenized directly, while any other encoded text is decoded with the platform charset first.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class DefaultTokenizer implements Tokenizer {
+    /*
+     *  Local variables.
+     */
+    private Charset charset;
+
+    /**
+     *  Default constructor override.
+     */
+    public DefaultTokenizer() {
+        this(Charset.defaultCharset());
+    }
+
+    /**
+     *  Overloaded constructor setting the charset of encoded text.
+     *  @param charset The charset used for decoding non ASCII bytes.
+     */
+    public DefaultTokenizer(Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     *  Getter for the charset of encoded text.
+     *  @return The charset used for decoding non ASCII bytes.
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Implementation of overridden method tokenize.
+     */
+    public void tokenize(char[] text, int offset, int length, TokenSink sink) {
+        int end = offset + length;
+        for(int line = offset; line < end; ) {
+            int lineEnd = line;
+            while (lineEnd < end && text[lineEnd] != '\n' && text[lineEnd] != '\r') lineEnd++;
+            int from = line, to = lineEnd;
+            while (from < to && text[from] <= ' ') from++; // lines are trimmed
+            while (to > from && text[to - 1] <= ' ') to--;
+            int start = -1, hash = 0, previousHash = 0;
+            for(int i = from; i <= to; i++) {
+                char c = i < to ? text[i] : ' ';
+                if (c != ' ') {
+                    if (start < 0) { start = i; hash = 0; }
+                    previousHash = hash;
+                    hash = 31 * hash + c;
+                } else if (start >= 0) {
+                    emit(text, start, i - start, hash, previousHash, Character.isLetter(text[i - 1]), sink);
+                    start = -1;
+                }
+            }
+            line = lineEnd + 1;
+        }
+    }
+
+    /**
+     * Implementation of overridden method tokenize.
+     */
+    public void tokenize(ByteBuffer text, TokenSink sink) {
+        int position = text.position(), limit = text.limit();
+        for(int i = position; i < limit; i++) {
+            if (text.get(i) < 0) { // not plain ASCII; so the text is decoded as a whole
+                CharBuffer decoded = charset.decode(text.duplicate());
+                tokenize(decoded.array(), decoded.arrayOffset() + decoded.position(), decoded.remaining(), sink);
+                return;
+            }
+        }
+        char[] token = new char[64];
+        for(int line = position; line < limit; ) {
+            int lineEnd = line;
+            while (lineEnd < limit && text.get(lineEnd) != '\n' && text.get(lineEnd) != '\r') lineEnd++;
+            int from = line, to = lineEnd;
+            while (from < to && text.get(from) <= ' ') from++; // lines are trimmed
+            while (to > from && text.get(to - 1) <= ' ') to--;
+            int length = 0, hash = 0, previousHash = 0;
+            for(int i = from; i <= to; i++) {
+                char c = i < to ? (char) text.get(i) : ' ';
+                if (c != ' ') {
+                    if (length == token.length) token = Arrays.copyOf(token, length * 2);
+                    token[length++] = c;
+                    previousHash = hash;
+                    hash = 31 * hash + c;
+                } else if (length > 0) {
+                    char last = token[length - 1];
+                    emit(token, 0, length, hash, previousHash, (last >= 'a' && last <= 'z') || (last >= 'A' && last <= 'Z'), sink);
+                    length = hash = 0;
+                }
+            }
+            line = lineEnd + 1;
+        }
+    }
+
+    /**
+     * A method applying the normalization rules on a scanned token and handing it to the sink.
+     */
+    private static void emit(char[] buffer, int offset, int length, int hash, int previousHash, boolean endsWithLetter, TokenSink sink) {
+        if (!endsWithLetter) { // strip the trailing punctuation
+            length--;
+            hash = previousHash;
+        }
+        if (length > 1) sink.accept(buffer, offset, length, hash);
+    }
+}
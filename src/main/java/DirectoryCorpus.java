@@ -0,0 +1,67 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+/**
+ *  DirectoryCorpus.java
+ *  A corpus source reading every file contained in a given directory; the category of each document is derived
+ *  from its filename.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class DirectoryCorpus implements CorpusSource {
+    /*
+     *  Local variables.
+     */
+    private ArrayList<File> files;
+
+    /**
+     *  Default constructor override.
+     *  @param path The directory containing the documents.
+     */
+    public DirectoryCorpus(String path) {
+        files = new ArrayList<File>();
+        File[] listOfFiles = new File(path).listFiles();
+        if (listOfFiles == null) throw new IllegalArgumentException("Not a directory: " + path);
+        for(File file: listOfFiles) {
+            if (file.isFile()) files.add(file);
+        }
+    }
+
+    /**
+     * Implementation of overridden method size.
+     */
+    public int size() {
+        return files.size();
+    }
+
+    /**
+     * Implementation of overridden method getName.
+     */
+    public String getName(int index) {
+        return files.get(index).getName();
+    }
+
+    /**
+     * Implementation of overridden method isSpam.
+     */
+    public boolean isSpam(int index) {
+        String filename = getName(index);
+        return (filename.contains("spam") || filename.contains("spm"));
+    }
+
+    /**
+     * Implementation of overridden method getContent.
+     */
+    public ByteBuffer getContent(int index) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(files.get(index).toPath()));
+    }
+
+    /**
+     * Implementation of overridden method isRandomAccess.
+     */
+    public boolean isRandomAccess() {
+        return true;
+    }
+}
@@ -0,0 +1,184 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ *  DocumentCache.java
+ *  A bounded cache of tokenized documents; keeping the term id sequence of each document in a compact primitive array,
+ *  so that later passes over the same documents need not read and tokenize them again. The documents held in memory
+ *  are bounded by a configurable budget in bytes; once exceeded, the least recently used documents are evicted and
+ *  spilled to a file, encoding every term id as a variable-length integer, from which they are read back on demand.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class DocumentCache {
+    /**
+     * The estimated memory used by a cached document besides its term ids; covering the array header, the map entry
+     * and the key.
+     */
+    private static final long ENTRY_OVERHEAD = 96;
+
+    /*
+     *  Local variables.
+     */
+    private final long budget;
+    private final LinkedHashMap<String, int[]> documents;
+    private final HashMap<String, long[]> spilled; // name -> {offset, number of bytes, number of term ids}
+    private File spillFile;
+    private RandomAccessFile spill;
+    private long used, hits, misses, spills;
+
+    /**
+     *  Default constructor override.
+     *  @param budget The memory budget of the documents held in memory; in bytes.
+     *  @param spillFile The file receiving the evicted documents; created on the first eviction, and deleted once the
+     *  cache is closed or on exit.
+     */
+    public DocumentCache(long budget, File spillFile) {
+        this.budget = budget;
+        this.documents = new LinkedHashMap<String, int[]>(1024, 0.75f, true); // access order
+        this.spilled = new HashMap<String, long[]>();
+        this.spillFile = spillFile;
+    }
+
+    /**
+     *  Overloaded constructor spilling into a temporary file; created on the first eviction, so that a cache never
+     *  exceeding its budget leaves no file behind.
+     *  @param budget The memory budget of the documents held in memory; in bytes.
+     */
+    public DocumentCache(long budget) {
+        this(budget, null);
+    }
+
+    /**
+     *  A method estimating the memory used by a cached document.
+     */
+    private static long sizeOf(int[] termIds) {
+        return ENTRY_OVERHEAD + 4L * termIds.length;
+    }
+
+    /**
+     *  A method caching the term id sequence of a document; evicting least recently used documents over the budget.
+     *  @param name The name of the document.
+     *  @param termIds The term ids of the document; which must not be modified afterwards.
+     */
+    public synchronized void put(String name, int[] termIds) {
+        int[] previous = documents.put(name, termIds);
+        if (previous != null) used -= sizeOf(previous);
+        spilled.remove(name); // the spilled copy may be stale
+        used += sizeOf(termIds);
+        Iterator<Map.Entry<String, int[]>> eldest = documents.entrySet().iterator();
+        while (used > budget && eldest.hasNext()) {
+            Map.Entry<String, int[]> entry = eldest.next();
+            if (!spilled.containsKey(entry.getKey())) Spill(entry.getKey(), entry.getValue());
+            used -= sizeOf(entry.getValue());
+            eldest.remove();
+        }
+    }
+
+    /**
+     *  A method looking up the term id sequence of a document; reading it back from the spill file if it was evicted.
+     *  @param name The name of the document.
+     *  @return The term ids of the document, or NULL if it is not cached.
+     */
+    public synchronized int[] get(String name) {
+        int[] termIds = documents.get(name);
+        if (termIds == null) {
+            long[] location = spilled.get(name);
+            if (location != null) {
+                termIds = Unspill(location);
+                if (termIds == null) {
+                    spilled.remove(name); // unreadable; so it is a miss, and will be read again from the corpus
+                } else {
+                    put(name, termIds);
+                    spilled.put(name, location); // still valid; so it need not be written again on eviction
+                }
+            }
+        }
+        if (termIds == null) misses++; else hits++;
+        return termIds;
+    }
+
+    /**
+     *  A method appending a document to the spill file; as variable-length integers of seven bits per byte.
+     */
+    private void Spill(String name, int[] termIds) {
+        byte[] encoded = new byte[5 * termIds.length];
+        int length = 0;
+        for(int id: termIds) {
+            while ((id & ~0x7F) != 0) {
+                encoded[length++] = (byte) ((id & 0x7F) | 0x80);
+                id >>>= 7;
+            }
+            encoded[length++] = (byte) id;
+        }
+        try {
+            if (spill == null) {
+                if (spillFile == null) spillFile = File.createTempFile("document-cache", ".spill");
+                spill = new RandomAccessFile(spillFile, "rw");
+                spill.setLength(0);
+                spillFile.deleteOnExit();
+            }
+            long offset = spill.length();
+            spill.seek(offset);
+            spill.write(encoded, 0, length);
+            spilled.put(name, new long[] {offset, length, termIds.length});
+            spills++;
+        } catch (IOException e) { // the document is dropped; and will be read again from the corpus
+            System.err.println("The system could not spill the document specified");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     *  A method reading a document back from the spill file.
+     */
+    private int[] Unspill(long[] location) {
+        try {
+            byte[] encoded = new byte[(int) location[1]];
+            spill.seek(location[0]);
+            spill.readFully(encoded);
+            int[] termIds = new int[(int) location[2]];
+            for(int i = 0, position = 0; i < termIds.length; i++) {
+                int id = 0;
+                for(int shift = 0; ; shift += 7) {
+                    byte b = encoded[position++];
+                    id |= (b & 0x7F) << shift;
+                    if (b >= 0) break;
+                }
+                termIds[i] = id;
+            }
+            return termIds;
+        } catch (IOException e) {
+            System.err.println("The system could not read the spilled document specified");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     *  A method closing the spill file.
+     *  @throws IOException If the spill file could not be closed.
+     */
+    public synchronized void close() throws IOException {
+        documents.clear();
+        spilled.clear();
+        used = 0;
+        if (spill != null) {
+            spill.close();
+            spill = null;
+            spillFile.delete();
+        }
+    }
+
+    /**
+     *  Implementation of overridden method toString; summarizing the cache usage.
+     */
+    public synchronized String toString() {
+        return "DOCUMENT CACHE: " + documents.size() + " in memory (" + used / 1024 + " KB), " + spilled.size()
+                + " spilled, " + hits + " hits, " + misses + " misses, " + spills + " spills";
+    }
+}
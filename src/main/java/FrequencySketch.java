@@ -0,0 +1,136 @@
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ *  FrequencySketch.java
+ *  A count-min sketch of term occurrences in a fixed amount of memory; admitting a term into the exact vocabulary only
+ *  once it has occurred a minimum number of times, so that the many terms seen once or twice never enter it. Each term
+ *  is counted in one counter per row, located by its hash code, and its occurrences are estimated as the minimum of
+ *  its counters; an estimate never falls below the actual occurrences and exceeds them only through collisions, which
+ *  conservative updating keeps rare. The spam occurrences of every term are sketched alongside; so that a term, once
+ *  admitted, starts with the counts of the occurrences it had before. The counters are updated atomically; so that
+ *  the training workers of a classifier may share a single sketch, and a term is admitted once its occurrences across
+ *  all of their documents reach the minimum frequency. Recording an occurrence of a term and claiming its admission
+ *  form a single decision, taken holding the lock of the term; one of a fixed set of locks, chosen by its hash code.
+ *  The admitted terms are recorded exactly, sharing the strings of the term dictionaries; so that only the first
+ *  worker to admit a term seeds it with its earlier occurrences, every other one counts its own occurrences alone,
+ *  and colliding terms never take over each other's admission. The estimates of colliding terms still depend on the
+ *  order of their occurrences, as conservative updating does; so that a sketch wide enough to keep collisions rare
+ *  gives the same counts whatever the number of workers.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class FrequencySketch {
+    /**
+     * The number of rows of the sketch.
+     */
+    private static final int DEPTH = 4;
+
+    /**
+     * The seeds of the hash functions of the rows.
+     */
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    /**
+     * The number of locks serializing the occurrences of the terms not yet admitted.
+     */
+    private static final int LOCKS = 256;
+
+    /*
+     *  Local variables.
+     */
+    private final AtomicIntegerArray counters, spamCounters;
+    private final Set<String> admitted = ConcurrentHashMap.<String>newKeySet();
+    private final Object[] locks;
+    private final int width, mask, minFrequency;
+
+    /**
+     *  Default constructor override.
+     *  @param width The number of counters per row; rounded up to a power of two.
+     *  @param minFrequency The minimum occurrences of a term for being admitted into the vocabulary.
+     */
+    public FrequencySketch(int width, int minFrequency) {
+        if (width < 1 || width > (1 << 26)) throw new IllegalArgumentException("Invalid sketch width: " + width);
+        this.width = Integer.highestOneBit(width * 2 - 1);
+        this.mask = this.width - 1;
+        this.minFrequency = minFrequency;
+        this.counters = new AtomicIntegerArray(DEPTH * this.width);
+        this.spamCounters = new AtomicIntegerArray(DEPTH * this.width);
+        this.locks = new Object[LOCKS];
+        for(int lock = 0; lock < LOCKS; lock++) locks[lock] = new Object();
+    }
+
+    /**
+     * Getter for the minimum frequency.
+     * @return The minimum occurrences of a term for being admitted into the vocabulary.
+     */
+    public int getMinFrequency() {
+        return minFrequency;
+    }
+
+    /**
+     * A method locating the counter of a term in a row.
+     */
+    private int indexOf(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+        return row * width + ((h ^ (h >>> 15)) & mask);
+    }
+
+    /**
+     * A method recording an occurrence of a term; raising only the counters below the new estimate.
+     * @param hash The hash code of the term.
+     * @param spam true if the term occurred in a spam document.
+     * @return The estimated occurrences of the term; including this one.
+     */
+    public int add(int hash, boolean spam) {
+        int estimate = update(counters, hash);
+        if (spam) update(spamCounters, hash);
+        return estimate;
+    }
+
+    /**
+     * A method raising the counters of a term conservatively.
+     */
+    private int update(AtomicIntegerArray table, int hash) {
+        int estimate = Integer.MAX_VALUE;
+        for(int row = 0; row < DEPTH; row++) estimate = Math.min(estimate, table.get(indexOf(hash, row)));
+        if (estimate == Integer.MAX_VALUE) return estimate; // saturated
+        estimate++;
+        for(int row = 0; row < DEPTH; row++) {
+            int index = indexOf(hash, row), current;
+            while ((current = table.get(index)) < estimate && !table.compareAndSet(index, current, estimate));
+        }
+        return estimate;
+    }
+
+    /**
+     * Getter for the lock of a term; to be held while recording an occurrence of the term and claiming its admission.
+     * @param hash The hash code of the term.
+     * @return The lock of the term; shared by every term of the same hash code.
+     */
+    public Object lockOf(int hash) {
+        return locks[(hash ^ (hash >>> 16)) & (LOCKS - 1)];
+    }
+
+    /**
+     * A method claiming the admission of a term; once its estimated occurrences reach the minimum frequency. The claim
+     * fails only if the very term was admitted before, by another worker sharing the sketch; never because of terms
+     * colliding with it. To be invoked holding the lock of the term.
+     * @param term The term.
+     * @return true if the term is admitted by this claim; false if it was already.
+     */
+    public boolean admit(String term) {
+        return admitted.add(term);
+    }
+
+    /**
+     * A method estimating the spam occurrences of a term.
+     * @param hash The hash code of the term.
+     * @return The estimated occurrences of the term in spam documents.
+     */
+    public int spamEstimate(int hash) {
+        int estimate = Integer.MAX_VALUE;
+        for(int row = 0; row < DEPTH; row++) estimate = Math.min(estimate, spamCounters.get(indexOf(hash, row)));
+        return estimate;
+    }
+}
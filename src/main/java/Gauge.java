@@ -0,0 +1,26 @@
+/**
+ *  Gauge.java
+ *  A gauge reporting the last value set; or, when overridden, a value derived from other metrics on every read.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class Gauge implements GaugeMXBean {
+    /*
+     *  Local variables.
+     */
+    private volatile double value;
+
+    /**
+     * Setter for the value.
+     * @param value The current value of the gauge.
+     */
+    public void set(double value) {
+        this.value = value;
+    }
+
+    /**
+     * Implementation of overridden method getValue.
+     */
+    public double getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,12 @@
+/**
+ *  GaugeMXBean.java
+ *  The management interface of a gauge; published over JMX by the MetricsRegistry class.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public interface GaugeMXBean {
+    /**
+     * Getter for the value.
+     * @return The current value of the gauge.
+     */
+    double getValue();
+}
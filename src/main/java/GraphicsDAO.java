@@ -1,6 +1,9 @@
 import org.jfree.ui.RefineryUtilities;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Locale;
 
 /**
  *  GraphicsDAO.java
@@ -39,6 +42,42 @@ public class GraphicsDAO {
         this.sampleRealData = sampleRealData;
     }
 
+    /**
+     *  Method rendering the Graphics chart to PNG and SVG files, named after the Naive Bayes type; without a display.
+     *  For further information also check the documentation of the PerformanceChart class.
+     *  @param directory The directory of the files.
+     *  @throws IOException If a file could not be written.
+     */
+    public void Render(File directory) throws IOException {
+        String name = naiveBayesType.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-");
+        PerformanceChart.WritePNG(new File(directory, name + ".png"), naiveBayesType, sampleTrainData, sampleRealData);
+        PerformanceChart.WriteSVG(new File(directory, name + ".svg"), naiveBayesType, sampleTrainData, sampleRealData);
+    }
+
+    /**
+     *  Getter for the train data statistics.
+     *  @return The train data statistics.
+     */
+    public ArrayList<Vec2<Integer, Double>> getTrainData() {
+        return sampleTrainData;
+    }
+
+    /**
+     *  Getter for the test data statistics.
+     *  @return The test data statistics.
+     */
+    public ArrayList<Vec2<Integer, Double>> getRealData() {
+        return sampleRealData;
+    }
+
+    /**
+     *  Getter for the Naive Bayes type for the statistics.
+     *  @return The Naive Bayes type.
+     */
+    public String getType() {
+        return naiveBayesType;
+    }
+
     /**
      *  Method demonstrating Graphics Application.
      */
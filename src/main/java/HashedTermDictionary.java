@@ -0,0 +1,217 @@
+/**
+ *  HashedTermDictionary.java
+ *  Represents a term dictionary of a fixed memory footprint; applying the hashing trick, each term is mapped onto one
+ *  of a fixed number of count buckets by its hash code, and no terms are stored at all. Every term is thus contained,
+ *  while terms sharing a bucket share their counts as well. The ids of the dictionary are the buckets.
+ *  With signed hashing, a second hash of each term picks a sign as well; a term of negative sign is given the id of its
+ *  bucket plus the number of buckets, and its counts are kept apart. The a posteriori probabilities of both ids of a
+ *  bucket are estimated from their counts combined, those of negative sign counting for the opposite category; so
+ *  their log-likelihood ratios are opposite, and the contributions of colliding terms of opposite signs cancel out
+ *  rather than biasing the bucket towards the more frequent one.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class HashedTermDictionary extends TermDictionary {
+    /*
+     * Local variables.
+     */
+    protected int buckets;
+    protected boolean signed;
+
+    /**
+     * Default constructor override.
+     * @param buckets The number of count buckets.
+     * @param signed true for signed hashing.
+     */
+    public HashedTermDictionary(int buckets, boolean signed) {
+        super(0);
+        if (buckets < 1 || (signed && buckets > Integer.MAX_VALUE / 2)) throw new IllegalArgumentException("Invalid number of buckets: " + buckets);
+        this.buckets = buckets;
+        this.signed = signed;
+        this.size = signed ? 2 * buckets : buckets;
+        terms = null;
+        hashes = null;
+        slots = null;
+        counts = new int[size];
+        spamCounts = new int[size];
+    }
+
+    /**
+     * Getter for the number of buckets.
+     * @return The number of count buckets.
+     */
+    public int getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * Getter for signed hashing.
+     * @return true if signed hashing is applied.
+     */
+    public boolean isSigned() {
+        return signed;
+    }
+
+    /**
+     * A method mapping the hash code of a term onto its id.
+     * @param hash The hash code of the term.
+     * @return The id of the term.
+     */
+    protected int idOf(int hash) {
+        int bucket = (int) ((spread(hash) & 0xFFFFFFFFL) % buckets);
+        if (!signed) return bucket;
+        int sign = Integer.rotateLeft(hash * 0x85EBCA6B, 13) * 0xC2B2AE35;
+        return sign < 0 ? bucket + buckets : bucket;
+    }
+
+    /**
+     * Implementation of overridden method getTerm; terms are not stored.
+     * @return NULL.
+     */
+    public String getTerm(int id) {
+        return null;
+    }
+
+    /**
+     * Implementation of overridden method getId; every term is contained.
+     */
+    protected int getId(String term, int hash) {
+        return idOf(hash);
+    }
+
+    /**
+     * Implementation of overridden method getId; every term is contained.
+     */
+    public int getId(char[] buffer, int offset, int length, int hash) {
+        return idOf(hash);
+    }
+
+    /**
+     * Implementation of overridden method add.
+     */
+    public int add(char[] buffer, int offset, int length, int hash) {
+        return idOf(hash);
+    }
+
+    /**
+     * Implementation of overridden method add.
+     */
+    protected int add(String term, int hash) {
+        return idOf(hash);
+    }
+
+    /**
+     * Implementation of overridden method addFrom; the ids of dictionaries of the same configuration coincide, while
+     * partial dictionaries keep the id of each of theirs as its hash code.
+     */
+    protected int addFrom(TermDictionary other, int otherId) {
+        return other instanceof Partial ? other.hashes[otherId] : otherId;
+    }
+
+    /**
+     * Implementation of overridden method newPartial; a sparse dictionary of the ids touched alone.
+     */
+    protected TermDictionary newPartial() {
+        return new Partial(this);
+    }
+
+    /**
+     * A sparse partial dictionary of a hashed term dictionary; assigning its own dense ids to the ids of the hashed
+     * dictionary it touches, and keeping each of the latter as the hash code of the former. A partial count table, as
+     * filled by a single train document, thus costs memory, and merging it time, proportional to the terms it counts
+     * rather than to the number of buckets.
+     */
+    private static class Partial extends TermDictionary {
+        private final HashedTermDictionary owner;
+
+        Partial(HashedTermDictionary owner) {
+            this.owner = owner;
+        }
+
+        protected int getId(String term, int hash) {
+            return add(term, hash);
+        }
+
+        public int getId(char[] buffer, int offset, int length, int hash) {
+            return add(null, hash);
+        }
+
+        public int add(char[] buffer, int offset, int length, int hash) {
+            return add(null, hash);
+        }
+
+        protected int add(String term, int hash) {
+            int id = owner.idOf(hash), slot = spread(id) & mask;
+            for(; slots[slot] != 0; slot = (slot + 1) & mask) {
+                if (hashes[slots[slot] - 1] == id) return slots[slot] - 1;
+            }
+            return insert(slot, null, id);
+        }
+
+        public String getTerm(int id) {
+            return null;
+        }
+
+        protected boolean hasTerms() {
+            return false;
+        }
+    }
+
+    /**
+     * Implementation of overridden method snapshot; copying the counts of the buckets.
+     */
+    protected TermDictionary snapshot() {
+        HashedTermDictionary snapshot = new HashedTermDictionary(buckets, signed);
+        System.arraycopy(counts, 0, snapshot.counts, 0, size);
+        System.arraycopy(spamCounts, 0, snapshot.spamCounts, 0, size);
+        return snapshot;
+    }
+
+    /**
+     * Implementation of overridden method grow; the buckets are fixed.
+     */
+    protected void grow() {
+        throw new UnsupportedOperationException("The buckets of a hashed term dictionary are fixed");
+    }
+
+    /**
+     * Implementation of overridden method countOf; combining both signs of the bucket.
+     */
+    protected int countOf(int id) {
+        return signed ? counts[id] + counts[pairOf(id)] : counts[id];
+    }
+
+    /**
+     * Implementation of overridden method spamCountOf; the opposite sign of the bucket counting for the ham category.
+     */
+    protected int spamCountOf(int id) {
+        if (!signed) return spamCounts[id];
+        int pair = pairOf(id);
+        return spamCounts[id] + (counts[pair] - spamCounts[pair]);
+    }
+
+    /**
+     * Implementation of overridden method hasTerms; terms are not stored.
+     */
+    protected boolean hasTerms() {
+        return false;
+    }
+
+    /**
+     * Implementation of overridden method appearedCount; counting the ids of buckets that appeared.
+     */
+    protected int appearedCount() {
+        int appeared = 0;
+        for(int id = 0; id < size; id++) {
+            if (countOf(id) > 0) appeared++;
+        }
+        return appeared;
+    }
+
+    /**
+     * Implementation of overridden method pairOf; the id of the opposite sign of the bucket.
+     */
+    protected int pairOf(int id) {
+        if (!signed) return id;
+        return id < buckets ? id + buckets : id - buckets;
+    }
+}
@@ -0,0 +1,128 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ *  LabelledCorpus.java
+ *  A corpus source of documents labelled with any number of categories; such as phishing, promotions, newsletters and
+ *  ham. The categories are taken either from the names of the subdirectories of a directory, each one holding the
+ *  documents of its category, or from a label manifest; a text file of "label path" lines, with paths relative to the
+ *  directory of the manifest, where blank lines and lines starting with '#' are ignored. Every category is given a
+ *  dense index, in sorted order of the labels.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class LabelledCorpus implements CorpusSource {
+    /*
+     *  Local variables.
+     */
+    private ArrayList<File> files;
+    private ArrayList<String> names;
+    private String[] labels;
+    private int[] categories;
+
+    /**
+     *  Default constructor override.
+     *  @param path Either a directory of one subdirectory per category, or a label manifest.
+     *  @throws IOException If the label manifest could not be read, or lists no documents.
+     */
+    public LabelledCorpus(String path) throws IOException {
+        files = new ArrayList<File>();
+        names = new ArrayList<String>();
+        ArrayList<String> documentLabels = new ArrayList<String>();
+        File root = new File(path);
+        if (root.isDirectory()) {
+            File[] directories = root.listFiles();
+            Arrays.sort(directories);
+            for(File directory: directories) {
+                if (!directory.isDirectory()) continue;
+                File[] listOfFiles = directory.listFiles();
+                Arrays.sort(listOfFiles);
+                for(File file: listOfFiles) {
+                    if (!file.isFile()) continue;
+                    files.add(file);
+                    names.add(directory.getName() + "/" + file.getName());
+                    documentLabels.add(directory.getName());
+                }
+            }
+        } else {
+            List<String> lines = Files.readAllLines(root.toPath(), Charset.forName("UTF-8"));
+            File base = root.getAbsoluteFile().getParentFile();
+            for(String line: lines) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] fields = line.split("\\s+", 2);
+                if (fields.length < 2) throw new IOException("Malformed label manifest line: " + line);
+                File file = new File(fields[1]);
+                files.add(file.isAbsolute() ? file : new File(base, fields[1]));
+                names.add(fields[1]);
+                documentLabels.add(fields[0]);
+            }
+        }
+        if (files.isEmpty()) throw new IOException("No labelled documents found: " + path);
+        labels = new TreeSet<String>(documentLabels).toArray(new String[0]);
+        HashMap<String, Integer> indices = new HashMap<String, Integer>();
+        for(int category = 0; category < labels.length; category++) indices.put(labels[category], category);
+        categories = new int[files.size()];
+        for(int index = 0; index < categories.length; index++) categories[index] = indices.get(documentLabels.get(index));
+    }
+
+    /**
+     * Getter for the labels of the categories.
+     * @return The labels; indexed by category.
+     */
+    public String[] getLabels() {
+        return labels.clone();
+    }
+
+    /**
+     * Getter for the category of a document.
+     * @param index The index of the document.
+     * @return The index of its category, among the labels.
+     */
+    public int getCategory(int index) {
+        return categories[index];
+    }
+
+    /**
+     * Implementation of overridden method size.
+     */
+    public int size() {
+        return files.size();
+    }
+
+    /**
+     * Implementation of overridden method getName.
+     */
+    public String getName(int index) {
+        return names.get(index);
+    }
+
+    /**
+     * Implementation of overridden method isSpam; true for the documents of a category labelled as spam.
+     */
+    public boolean isSpam(int index) {
+        String label = labels[categories[index]];
+        return (label.contains("spam") || label.contains("spm"));
+    }
+
+    /**
+     * Implementation of overridden method getContent.
+     */
+    public ByteBuffer getContent(int index) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(files.get(index).toPath()));
+    }
+
+    /**
+     * Implementation of overridden method isRandomAccess.
+     */
+    public boolean isRandomAccess() {
+        return true;
+    }
+}
@@ -0,0 +1,125 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ *  LatencyHistogram.java
+ *  A lock-free histogram of latencies in nanoseconds; using logarithmic buckets, each split into eight linear
+ *  sub-buckets, so that every percentile is reported within 12.5% of its actual value. Recording takes no lock; it
+ *  performs three atomic updates, of the bucket, the count and the sum, and a compare-and-set of the maximum only
+ *  while the latency exceeds it. Many threads may thus record concurrently, though threads recording at once contend
+ *  on the shared count and sum. The values are updated one by one; so that a concurrent reader may see a count and a
+ *  sum off by the latencies being recorded.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class LatencyHistogram implements LatencyHistogramMXBean {
+    /*
+     *  Local variables.
+     */
+    private static final int SUB_BUCKET_BITS = 3, SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private final AtomicLongArray buckets = new AtomicLongArray((64 - SUB_BUCKET_BITS) * SUB_BUCKETS);
+    private final AtomicLong count = new AtomicLong(), sum = new AtomicLong(), max = new AtomicLong();
+
+    /**
+     * A method locating the bucket of a value.
+     * @param value The non negative value.
+     * @return The index of the bucket.
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        return (msb - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + (int) ((value >>> (msb - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * A method computing the smallest value of a bucket.
+     * @param bucket The index of the bucket.
+     * @return The smallest value falling in the bucket.
+     */
+    private static long lowerBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int msb = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (msb - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * A method recording a latency.
+     * @param nanos The latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        buckets.incrementAndGet(bucketOf(nanos));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+        long current;
+        while (nanos > (current = max.get()) && !max.compareAndSet(current, nanos));
+    }
+
+    /**
+     * Getter for the number of latencies recorded.
+     * @return The number of latencies recorded.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Getter for the mean latency.
+     * @return The mean latency in nanoseconds; 0 if nothing was recorded.
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0.0 : sum.get() / (double) n;
+    }
+
+    /**
+     * Getter for the maximum latency.
+     * @return The maximum latency in nanoseconds.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * A method estimating a percentile of the latencies recorded; as the middle of the bucket containing it.
+     * @param percentile The percentile; between 0 and 100.
+     * @return The estimated latency in nanoseconds; 0 if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[buckets.length()];
+        for(int i = 0; i < snapshot.length; i++) total += (snapshot[i] = buckets.get(i));
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(percentile / 100.0 * total);
+        long seen = 0;
+        for(int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= Math.max(rank, 1)) {
+                long lower = lowerBoundOf(i), upper = i + 1 < snapshot.length ? lowerBoundOf(i + 1) : lower;
+                return Math.min(lower + (upper - lower) / 2, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Implementation of overridden method getMedian.
+     */
+    public long getMedian() {
+        return getPercentile(50);
+    }
+
+    /**
+     * Implementation of overridden method getPercentile99.
+     */
+    public long getPercentile99() {
+        return getPercentile(99);
+    }
+
+    /**
+     * Implementation of overridden method toString; summarizing the tail latencies in microseconds.
+     */
+    public String toString() {
+        return String.format("count=%d mean=%.1fus p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus", getCount(), getMean() / 1e3,
+                getPercentile(50) / 1e3, getPercentile(99) / 1e3, getPercentile(99.9) / 1e3, getMax() / 1e3);
+    }
+}
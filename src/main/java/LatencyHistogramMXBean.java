@@ -0,0 +1,37 @@
+/**
+ *  LatencyHistogramMXBean.java
+ *  The management interface of a latency histogram; published over JMX by the MetricsRegistry class. All latencies
+ *  are reported in nanoseconds.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public interface LatencyHistogramMXBean {
+    /**
+     * Getter for the number of latencies recorded.
+     * @return The number of latencies recorded.
+     */
+    long getCount();
+
+    /**
+     * Getter for the mean latency.
+     * @return The mean latency; 0 if nothing was recorded.
+     */
+    double getMean();
+
+    /**
+     * Getter for the maximum latency.
+     * @return The maximum latency.
+     */
+    long getMax();
+
+    /**
+     * Getter for the median latency.
+     * @return The estimated 50th percentile.
+     */
+    long getMedian();
+
+    /**
+     * Getter for the tail latency.
+     * @return The estimated 99th percentile.
+     */
+    long getPercentile99();
+}
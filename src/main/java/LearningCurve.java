@@ -0,0 +1,288 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ *  LearningCurve.java
+ *  Computes the learning curve of a classifier; its accuracy on the train and the test documents after training on
+ *  10%, 20%, ..., 100% of the train documents, with all features as well as with the k-Best ones. Rather than training
+ *  ten classifiers, the train documents are read once, by a single classifier, and a snapshot of it is taken at every
+ *  10% boundary; the probabilities and the k-Best properties of each snapshot are computed on a worker while training
+ *  goes on, and only its log-likelihood ratios are kept. Since term ids are only ever appended, the test documents are
+ *  tokenized once against the final vocabulary and every snapshot ignores the ids it does not contain; while the train
+ *  documents are cached as term ids when first read; unless terms are admitted through a frequency sketch, where the
+ *  ids of a document would miss its tokens admitted later, and the train documents are read and tokenized again
+ *  against the final vocabulary instead. A pass over the train documents and a pass over the test
+ *  documents then score every document against every snapshot; each pass split into chunks evaluated concurrently.
+ *  The test chunks of a sequential corpus are read in order on the calling thread, at most two per worker in flight.
+ *  The outcome of every snapshot is exactly the one of a classifier trained on its share of the train documents alone.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class LearningCurve {
+    /**
+     * The number of points of the curve; one per 10% of the train documents.
+     */
+    public static final int POINTS = 10;
+
+    /**
+     * The minimum number of documents per evaluation chunk.
+     */
+    private static final int MIN_CHUNK = 64;
+
+    /*
+     *  Local variables.
+     */
+    private NaiveBayes classifier;
+    private double kappa;
+    private int workers;
+    private Point[] points;
+
+    /**
+     *  The state of a snapshot needed for scoring.
+     */
+    private static class Point {
+        int documents, size;
+        double a_priori_log_odds;
+        double[] logLikelihoodRatios;
+        BitSet k_best_properties;
+        ConfusionMatrix train = new ConfusionMatrix(), k_best_train = new ConfusionMatrix();
+        ConfusionMatrix test = new ConfusionMatrix(), k_best_test = new ConfusionMatrix();
+    }
+
+    /**
+     *  Default constructor override.
+     *  @param classifier The empty classifier; trained on every train document once the curve is computed.
+     *  @param k The data percentage to be used from the vocabulary dataset; as the k-best.
+     *  @param workers The number of workers.
+     */
+    public LearningCurve(NaiveBayes classifier, double k, int workers) {
+        this.classifier = classifier;
+        this.kappa = k;
+        this.workers = Math.max(1, workers);
+    }
+
+    /**
+     *  A method computing the learning curve. The a priori and a posteriori probabilities of the classifier are computed
+     *  as well.
+     *  @param train_data The train corpus.
+     *  @param test_data The test corpus.
+     *  @param cache The tokenized document cache holding the train documents, keyed by the given prefix and document
+     *  name; or NULL for a temporary one. Not used with a frequency sketch.
+     *  @param cachePrefix The prefix of the cache keys.
+     */
+    public void Run(CorpusSource train_data, CorpusSource test_data, DocumentCache cache, String cachePrefix) {
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        DocumentCache temporary = null;
+        try {
+            if (classifier.sketch != null) cache = null; // the train documents are read again
+            else if (cache == null) cache = temporary = new DocumentCache(64L << 20);
+            Train(train_data, cache, cachePrefix, pool);
+            Evaluate(train_data, cache, cachePrefix, pool, true);
+            Evaluate(test_data, null, null, pool, false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The learning curve was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("The learning curve failed", e.getCause());
+        } finally {
+            pool.shutdown();
+            if (temporary != null) {
+                try {
+                    temporary.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     *  A method training the classifier on every train document, in corpus order; caching the term ids of every
+     *  document, unless there is no cache, and taking a snapshot at every 10% boundary.
+     */
+    private void Train(CorpusSource corpus, DocumentCache cache, String cachePrefix, ExecutorService pool)
+            throws InterruptedException, ExecutionException {
+        int documents = corpus.size();
+        ArrayList<Future<Point>> snapshots = new ArrayList<Future<Point>>();
+        classifier.numOfTrainData = 0;
+        for(int train = 0, point = 1; train < documents; train++) {
+            ByteBuffer content = Read(corpus, train);
+            if (content != null) {
+                CountTable table = classifier.NewCountTable();
+                if (cache == null) {
+                    classifier.ReadTrainDocument(content, corpus.isSpam(train), table);
+                } else {
+                    cache.put(cachePrefix + "/" + corpus.getName(train), classifier.ReadTrainTokens(content, corpus.isSpam(train), table));
+                }
+                classifier.spam_counter += table.spam_counter;
+                classifier.appearences += table.appearences;
+            }
+            classifier.numOfTrainData++;
+            for(; point <= POINTS && train + 1 == Math.max(1, point * documents / POINTS); point++) {
+                final NaiveBayes snapshot = classifier.Snapshot();
+                snapshots.add(pool.submit(new Callable<Point>() {
+                    public Point call() {
+                        return Prepare(snapshot);
+                    }
+                }));
+            }
+        }
+        points = new Point[snapshots.size()];
+        for(int point = 0; point < points.length; point++) points[point] = snapshots.get(point).get();
+        classifier.GetAPrioriProbabilities();
+        classifier.GetAPrioriEntrophy();
+        classifier.GetAPosterioriProbabilities();
+    }
+
+    /**
+     *  A method computing the probabilities and the k-Best properties of a snapshot; keeping only what scoring needs.
+     */
+    private Point Prepare(NaiveBayes snapshot) {
+        snapshot.GetAPrioriProbabilities();
+        snapshot.GetAPrioriEntrophy();
+        snapshot.GetAPosterioriProbabilities();
+        Point point = new Point();
+        point.documents = snapshot.numOfTrainData;
+        point.size = snapshot.vocabulary.size();
+        point.a_priori_log_odds = snapshot.a_priori_log_odds;
+        point.logLikelihoodRatios = snapshot.vocabulary.logLikelihoodRatios;
+        point.k_best_properties = snapshot.GetInformationGainConclusions(kappa);
+        return point;
+    }
+
+    /**
+     *  A method scoring every document of a corpus against every snapshot; the train documents only against the
+     *  snapshots trained on them, from the cache if any, and the test documents against all, tokenized once.
+     */
+    private void Evaluate(final CorpusSource corpus, final DocumentCache cache, final String cachePrefix, ExecutorService pool, final boolean train)
+            throws InterruptedException, ExecutionException {
+        int documents = corpus.size();
+        boolean sequential = (!train || cache == null) && !corpus.isRandomAccess(); // the cached train documents are not read
+        int chunkSize = sequential ? MIN_CHUNK : Math.max(MIN_CHUNK, (documents + 8 * workers - 1) / (8 * workers));
+        ArrayList<Future<ConfusionMatrix[]>> chunks = new ArrayList<Future<ConfusionMatrix[]>>();
+        for(int start = 0; start < documents; start += chunkSize) {
+            final int from = start, to = Math.min(start + chunkSize, documents);
+            if (sequential && chunks.size() >= 2 * workers) chunks.get(chunks.size() - 2 * workers).get();
+            final CorpusSource source = sequential ? new CorpusChunk(corpus, from, to) : corpus;
+            chunks.add(pool.submit(new Callable<ConfusionMatrix[]>() {
+                public ConfusionMatrix[] call() {
+                    return Score(source, cache, cachePrefix, from, to, train);
+                }
+            }));
+        }
+        for(Future<ConfusionMatrix[]> chunk: chunks) {
+            ConfusionMatrix[] matrices = chunk.get();
+            for(int point = 0; point < points.length; point++) {
+                (train ? points[point].train : points[point].test).add(matrices[2 * point]);
+                (train ? points[point].k_best_train : points[point].k_best_test).add(matrices[2 * point + 1]);
+            }
+        }
+    }
+
+    /**
+     *  A method scoring a chunk of documents against every snapshot.
+     *  @return The simple and the k-Best confusion matrix of every snapshot, in turn.
+     */
+    private ConfusionMatrix[] Score(CorpusSource corpus, DocumentCache cache, String cachePrefix, int from, int to, boolean train) {
+        ConfusionMatrix[] matrices = new ConfusionMatrix[2 * points.length];
+        for(int i = 0; i < matrices.length; i++) matrices[i] = new ConfusionMatrix();
+        for(int document = from; document < to; document++) {
+            String name = corpus.getName(document);
+            int[] tokens;
+            if (train && cache != null) {
+                tokens = cache.get(cachePrefix + "/" + name);
+                if (tokens == null) tokens = new int[0]; // unreadable documents have no tokens
+            } else {
+                ByteBuffer content = Read(corpus, document);
+                tokens = classifier.ReadTestDocument(name, content == null ? ByteBuffer.allocate(0) : content).getYValue();
+            }
+            boolean spam = classifier.isSpam(name);
+            for(int point = 0; point < points.length; point++) {
+                Point snapshot = points[point];
+                if (train && document >= snapshot.documents) continue;
+                double logOdds = snapshot.a_priori_log_odds, k_best_logOdds = snapshot.a_priori_log_odds;
+                for(int word: tokens) {
+                    if (word >= snapshot.size) continue; // added after the snapshot
+                    logOdds += snapshot.logLikelihoodRatios[word];
+                    if (snapshot.k_best_properties.get(word)) k_best_logOdds += snapshot.logLikelihoodRatios[word];
+                }
+                matrices[2 * point].add(logOdds >= 0, spam);
+                matrices[2 * point + 1].add(k_best_logOdds >= 0, spam);
+            }
+        }
+        return matrices;
+    }
+
+    /**
+     *  A method reading the contents of a document; displaying an error description if reading failed.
+     *  @return The encoded contents of the document, or NULL if reading failed.
+     */
+    private static ByteBuffer Read(CorpusSource corpus, int index) {
+        try {
+            long start = System.nanoTime();
+            ByteBuffer content = corpus.getContent(index);
+            TestLogic.READ_LATENCY.record(System.nanoTime() - start);
+            return content;
+        } catch (IOException e) {
+            System.err.println("The system could not find the file specified");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     *  Getter for the accuracy on the train documents; as the data points of the GraphicsDAO class.
+     *  @param k_best true for the k-Best classifications.
+     *  @return The accuracy of every snapshot on its train documents; by percentage of the train documents used.
+     */
+    public ArrayList<Vec2<Integer, Double>> getTrainCurve(boolean k_best) {
+        ArrayList<Vec2<Integer, Double>> curve = new ArrayList<Vec2<Integer, Double>>();
+        for(int point = 0; point < points.length; point++) {
+            curve.add(new Vec2<Integer, Double>((point + 1) * 100 / POINTS, (k_best ? points[point].k_best_train : points[point].train).getAccuracy()));
+        }
+        return curve;
+    }
+
+    /**
+     *  Getter for the accuracy on the test documents; as the data points of the GraphicsDAO class.
+     *  @param k_best true for the k-Best classifications.
+     *  @return The accuracy of every snapshot on the test documents; by percentage of the train documents used.
+     */
+    public ArrayList<Vec2<Integer, Double>> getTestCurve(boolean k_best) {
+        ArrayList<Vec2<Integer, Double>> curve = new ArrayList<Vec2<Integer, Double>>();
+        for(int point = 0; point < points.length; point++) {
+            curve.add(new Vec2<Integer, Double>((point + 1) * 100 / POINTS, (k_best ? points[point].k_best_test : points[point].test).getAccuracy()));
+        }
+        return curve;
+    }
+
+    /**
+     *  Getter for the results on the test documents of the classifier trained on every train document.
+     *  @param k_best true for the k-Best classifications.
+     *  @return The confusion matrix of the last snapshot on the test documents.
+     */
+    public ConfusionMatrix getTestResults(boolean k_best) {
+        Point last = points[points.length - 1];
+        return k_best ? last.k_best_test : last.test;
+    }
+
+    /**
+     *  Method outputting the learning curve to default output stream (System.out).
+     */
+    public void OutputResults() {
+        for(int point = 0; point < points.length; point++) {
+            Point snapshot = points[point];
+            System.out.println(((point + 1) * 100 / POINTS) + "% (" + snapshot.documents + " documents, " + snapshot.size + " terms)");
+            System.out.println("Train: " + snapshot.train);
+            System.out.println("Test: " + snapshot.test);
+            System.out.println("k-Best train: " + snapshot.k_best_train);
+            System.out.println("k-Best test: " + snapshot.k_best_test);
+        }
+    }
+}
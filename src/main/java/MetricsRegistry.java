@@ -0,0 +1,229 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ *  MetricsRegistry.java
+ *  A registry of named counters, gauges and latency histograms instrumenting the classifier; created once by name and
+ *  kept by the instrumented classes in static fields, so that recording never looks them up. Recording is lock-free
+ *  throughout. The metrics may be published as JMX MBeans under the "NaiveBayes" domain, and exported periodically as
+ *  a snapshot file of sorted "name.attribute=value" lines, replaced atomically on every export.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class MetricsRegistry {
+    /**
+     * The registry shared by the instrumented classes.
+     */
+    public static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    /*
+     *  Local variables.
+     */
+    private final ConcurrentHashMap<String, Object> metrics = new ConcurrentHashMap<String, Object>();
+    private volatile MBeanServer server;
+    private ScheduledExecutorService exporter;
+
+    /**
+     *  A method locating a counter; creating it on first use.
+     *  @param name The name of the counter.
+     *  @return The counter.
+     */
+    public Counter counter(String name) {
+        return (Counter) getOrCreate(name, new Counter());
+    }
+
+    /**
+     *  A method locating a gauge; creating it on first use.
+     *  @param name The name of the gauge.
+     *  @return The gauge.
+     */
+    public Gauge gauge(String name) {
+        return (Gauge) getOrCreate(name, new Gauge());
+    }
+
+    /**
+     *  A method creating a gauge reporting the ratio of two counters; or 0 while the denominator is 0.
+     *  @param name The name of the gauge.
+     *  @param numerator The counter of the numerator.
+     *  @param denominator The counter of the denominator.
+     *  @return The gauge.
+     */
+    public Gauge ratio(String name, final Counter numerator, final Counter denominator) {
+        return (Gauge) getOrCreate(name, new Gauge() {
+            public double getValue() {
+                long total = denominator.getCount();
+                return total == 0 ? 0.0 : numerator.getCount() / (double) total;
+            }
+        });
+    }
+
+    /**
+     *  A method locating a latency histogram; creating it on first use.
+     *  @param name The name of the histogram.
+     *  @return The histogram.
+     */
+    public LatencyHistogram histogram(String name) {
+        return (LatencyHistogram) getOrCreate(name, new LatencyHistogram());
+    }
+
+    /**
+     *  A method registering an existing latency histogram; replacing any metric of the same name.
+     *  @param name The name of the histogram.
+     *  @param histogram The histogram.
+     */
+    public void register(String name, LatencyHistogram histogram) {
+        Object previous = metrics.put(name, histogram);
+        MBeanServer server = this.server;
+        if (server != null) {
+            if (previous != null) Unpublish(server, name, previous);
+            Publish(server, name, histogram);
+        }
+    }
+
+    /**
+     *  A method returning the metric of a name; storing the given one if the name is not taken.
+     */
+    private Object getOrCreate(String name, Object created) {
+        Object metric = metrics.putIfAbsent(name, created);
+        if (metric != null) return metric;
+        MBeanServer server = this.server;
+        if (server != null) Publish(server, name, created);
+        return created;
+    }
+
+    /**
+     *  A method publishing every metric, present and future, as an MBean of the platform MBean server.
+     */
+    public synchronized void publish() {
+        if (server != null) return;
+        server = ManagementFactory.getPlatformMBeanServer();
+        for(Map.Entry<String, Object> metric: metrics.entrySet()) Publish(server, metric.getKey(), metric.getValue());
+    }
+
+    /**
+     *  A method forming the object name of a metric.
+     */
+    private static ObjectName NameOf(String name, Object metric) throws JMException {
+        String type = metric instanceof Counter ? "Counter" : metric instanceof Gauge ? "Gauge" : "Histogram";
+        return new ObjectName("NaiveBayes:type=" + type + ",name=" + ObjectName.quote(name));
+    }
+
+    /**
+     *  A method registering the MBean of a metric; displaying an error description if registration failed.
+     */
+    private static void Publish(MBeanServer server, String name, Object metric) {
+        try {
+            ObjectName objectName = NameOf(name, metric);
+            if (!server.isRegistered(objectName)) server.registerMBean(metric, objectName);
+        } catch (JMException e) {
+            System.err.println("The system could not publish the metric " + name);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     *  A method unregistering the MBean of a metric.
+     */
+    private static void Unpublish(MBeanServer server, String name, Object metric) {
+        try {
+            ObjectName objectName = NameOf(name, metric);
+            if (server.isRegistered(objectName)) server.unregisterMBean(objectName);
+        } catch (JMException e) {
+            System.err.println("The system could not unpublish the metric " + name);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     *  A method exporting a snapshot file periodically; on a daemon thread.
+     *  @param path The path of the snapshot file.
+     *  @param periodSeconds The seconds between exports.
+     */
+    public synchronized void startSnapshots(final String path, long periodSeconds) {
+        if (exporter != null) exporter.shutdownNow();
+        exporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "metrics-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        exporter.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                try {
+                    WriteSnapshot(path);
+                } catch (IOException e) {
+                    System.err.println("The system could not write the metrics snapshot specified");
+                    e.printStackTrace();
+                }
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     *  A method stopping the periodic export of snapshot files.
+     */
+    public synchronized void stopSnapshots() {
+        if (exporter != null) exporter.shutdownNow();
+        exporter = null;
+    }
+
+    /**
+     *  A method writing a snapshot file of every metric; through a temporary file moved over the previous snapshot, so
+     *  that readers never observe a partial one.
+     *  @param path The path of the snapshot file.
+     *  @throws IOException If the snapshot file could not be written.
+     */
+    public void WriteSnapshot(String path) throws IOException {
+        Path target = Paths.get(path).toAbsolutePath();
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(temporary, toString().getBytes(Charset.forName("UTF-8")));
+        try {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) { // the file system may not support atomic moves
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Implementation of overridden method toString; listing every metric attribute as a sorted "name.attribute=value"
+     * line, with latencies in nanoseconds.
+     */
+    public String toString() {
+        StringBuilder snapshot = new StringBuilder();
+        snapshot.append("timestamp=").append(System.currentTimeMillis()).append('\n');
+        for(Map.Entry<String, Object> metric: new TreeMap<String, Object>(metrics).entrySet()) {
+            String name = metric.getKey();
+            Object value = metric.getValue();
+            if (value instanceof Counter) {
+                Counter counter = (Counter) value;
+                snapshot.append(name).append(".count=").append(counter.getCount()).append('\n');
+                snapshot.append(name).append(".rate=").append(counter.getRate()).append('\n');
+            } else if (value instanceof Gauge) {
+                snapshot.append(name).append(".value=").append(((Gauge) value).getValue()).append('\n');
+            } else {
+                LatencyHistogram histogram = (LatencyHistogram) value;
+                snapshot.append(name).append(".count=").append(histogram.getCount()).append('\n');
+                snapshot.append(name).append(".mean=").append(histogram.getMean()).append('\n');
+                snapshot.append(name).append(".p50=").append(histogram.getMedian()).append('\n');
+                snapshot.append(name).append(".p99=").append(histogram.getPercentile99()).append('\n');
+                snapshot.append(name).append(".max=").append(histogram.getMax()).append('\n');
+            }
+        }
+        return snapshot.toString();
+    }
+}
@@ -0,0 +1,161 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ *  MicroBatcher.java
+ *  Collects classification requests submitted concurrently into micro-batches scored by a single thread against a
+ *  trained classifier. The scoring thread waits only for the first request of a batch and then drains whatever else is
+ *  pending; so that batches grow with the load, while an idle server adds no batching delay. Every batch is scored by a
+ *  single call holding the classifier once, and completed at a single instant. Should scoring the batch fail, each of
+ *  its requests is scored on its own, and those failing are completed exceptionally; the scoring thread never dies.
+ *  The latency of every request, from submission to completion, is recorded. Once shut down, the requests still
+ *  pending are cancelled and further requests are rejected; so that no submitter waits forever.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class MicroBatcher implements Runnable {
+    /**
+     *  A pending classification request.
+     */
+    private static final class Request {
+        private final int[] tokens;
+        private final long submitted;
+        private final CompletableFuture<Double> logOdds;
+
+        private Request(int[] tokens) {
+            this.tokens = tokens;
+            this.submitted = System.nanoTime();
+            this.logOdds = new CompletableFuture<Double>();
+        }
+    }
+
+    /*
+     *  Local variables.
+     */
+    private final NaiveBayes classifier;
+    private final BlockingQueue<Request> queue;
+    private final int maxBatchSize;
+    private final int[][] documents;
+    private final double[] logOdds;
+    private final LatencyHistogram latencies;
+    private volatile long batches, scored; // written by the scoring thread alone
+    private volatile boolean stopped;
+    private final Thread scorer;
+
+    /**
+     *  Default constructor override; starting the scoring thread.
+     *  @param classifier The trained classifier.
+     *  @param queueCapacity The number of requests which may be pending; submitters block beyond it.
+     *  @param maxBatchSize The largest number of requests scored in one batch.
+     */
+    public MicroBatcher(NaiveBayes classifier, int queueCapacity, int maxBatchSize) {
+        this.classifier = classifier;
+        this.queue = new ArrayBlockingQueue<Request>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.documents = new int[maxBatchSize][];
+        this.logOdds = new double[maxBatchSize];
+        this.latencies = new LatencyHistogram();
+        this.scorer = new Thread(this, "micro-batch-scorer");
+        this.scorer.setDaemon(true);
+        this.scorer.start();
+    }
+
+    /**
+     *  A method submitting a document for classification.
+     *  @param tokens The ids of the vocabulary inclusive tokens of the document.
+     *  @return The future log-odds of the document being spam.
+     *  @throws InterruptedException If interrupted while waiting for queue space.
+     *  @throws IllegalStateException If the micro-batcher has been shut down.
+     */
+    public Future<Double> submit(int[] tokens) throws InterruptedException {
+        if (stopped) throw new IllegalStateException("The micro-batcher has been shut down");
+        Request request = new Request(tokens);
+        queue.put(request);
+        if (stopped && queue.remove(request)) request.logOdds.cancel(false); // queued after the pending requests were cancelled
+        return request.logOdds;
+    }
+
+    /**
+     *  Implementation of overridden method run; scoring batches until the scoring thread is interrupted.
+     */
+    public void run() {
+        ArrayList<Request> batch = new ArrayList<Request>(maxBatchSize);
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatchSize - 1);
+                Score(batch);
+                scored += batch.size();
+                batches++;
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            for(Request request: batch) request.logOdds.cancel(false);
+            CancelPending();
+        }
+    }
+
+    /**
+     *  A method cancelling every request still pending.
+     */
+    private void CancelPending() {
+        ArrayList<Request> pending = new ArrayList<Request>();
+        queue.drainTo(pending);
+        for(Request request: pending) request.logOdds.cancel(false);
+    }
+
+    /**
+     *  A method scoring a batch with a single call; scoring every request on its own if the call fails.
+     */
+    private void Score(ArrayList<Request> batch) {
+        for(int request = 0; request < batch.size(); request++) documents[request] = batch.get(request).tokens;
+        try {
+            classifier.GetLogOdds(documents, batch.size(), logOdds);
+            long completed = System.nanoTime();
+            for(int request = 0; request < batch.size(); request++) {
+                batch.get(request).logOdds.complete(logOdds[request]);
+                latencies.record(completed - batch.get(request).submitted);
+            }
+        } catch (RuntimeException e) {
+            for(Request request: batch) {
+                try {
+                    request.logOdds.complete(classifier.GetLogOdds(request.tokens));
+                } catch (RuntimeException failure) {
+                    request.logOdds.completeExceptionally(failure);
+                }
+                latencies.record(System.nanoTime() - request.submitted);
+            }
+        } finally {
+            Arrays.fill(documents, 0, batch.size(), null);
+        }
+    }
+
+    /**
+     *  A method stopping the scoring thread; cancelling the requests still pending and rejecting any further ones.
+     */
+    public void shutdown() {
+        stopped = true;
+        scorer.interrupt();
+        CancelPending(); // also releasing any submitter waiting for queue space
+    }
+
+    /**
+     *  Getter for the request latencies.
+     *  @return The histogram of request latencies in nanoseconds.
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    /**
+     *  Getter for the mean batch size.
+     *  @return The mean number of requests scored per batch; 0 if nothing was scored.
+     */
+    public double getMeanBatchSize() {
+        long n = batches;
+        return n == 0 ? 0.0 : scored / (double) n;
+    }
+}
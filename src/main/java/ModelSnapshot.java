@@ -0,0 +1,240 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.zip.CRC32;
+
+/**
+ *  ModelSnapshot.java
+ *  Persists the trained state of a Naive Bayes classifier into a versioned, checksummed binary file; and loads it back
+ *  through memory mapping, copying the primitive arrays in bulk rather than parsing them; the terms alone are decoded
+ *  one by one into strings, so that loading still takes time linear in the size of the vocabulary, though a small
+ *  fraction of the time of retraining. The header is validated against the length of the file before any array is
+ *  allocated. A snapshot consists of a header
+ *  (magic number, format version, flags, term table dimensions, category counters and a priori values), the open
+ *  addressing table and the per-term arrays of the term dictionary, the optional information gain arrays, the terms as
+ *  UTF-8 bytes, and a trailing CRC32 checksum of all preceding bytes. All values are stored little-endian. Snapshots of
+ *  a hashed term dictionary omit the table, the hash codes and the terms.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class ModelSnapshot {
+    /**
+     * The magic number of model snapshots; "NBMD" in ASCII.
+     */
+    public static final int MAGIC = 0x4E424D44;
+
+    /**
+     * The format version of model snapshots.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The flag marking snapshots containing the information gain arrays.
+     */
+    private static final int HAS_INFORMATION_GAIN = 1;
+
+    /**
+     * The flags marking snapshots of a hashed term dictionary, and of signed hashing; which contain no hash table,
+     * hash codes or terms. The reserved header field holds the number of buckets instead.
+     */
+    private static final int HASHED = 2, SIGNED = 4;
+
+    /**
+     * The length of the snapshot header in bytes.
+     */
+    private static final int HEADER_LENGTH = 4 * 9 + 8 * 4;
+
+    /**
+     *  A method saving the trained state of a classifier; after its a posteriori probabilities have been computed.
+     *  @param model The trained classifier.
+     *  @param path The path of the snapshot to be written.
+     *  @throws IOException If the snapshot could not be written.
+     */
+    public static void save(NaiveBayes model, String path) throws IOException {
+        TermDictionary vocabulary = model.vocabulary;
+        int size = vocabulary.size();
+        boolean hasInformationGain = model.information_gain != null && model.information_gain.length == size;
+        HashedTermDictionary hashed = vocabulary instanceof HashedTermDictionary ? (HashedTermDictionary) vocabulary : null;
+        int flags = (hasInformationGain ? HAS_INFORMATION_GAIN : 0) | (hashed != null ? HASHED : 0) | (hashed != null && hashed.isSigned() ? SIGNED : 0);
+        int capacity = hashed != null ? 0 : vocabulary.slots.length;
+        Charset utf8 = Charset.forName("UTF-8");
+        byte[][] terms = new byte[hashed != null ? 0 : size][];
+        long termBytes = 0;
+        for(int id = 0; id < terms.length; id++) {
+            terms[id] = vocabulary.terms[id].getBytes(utf8);
+            termBytes += terms[id].length;
+        }
+        long length = HEADER_LENGTH + 4L * capacity + 4L * size * (hashed != null ? 2 : 4) + 8L * size * (hasInformationGain ? 5 : 3) + termBytes + 8;
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+        try {
+            file.setLength(0);
+            FileChannel channel = file.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            CRC32 checksum = new CRC32();
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(flags);
+            buffer.putInt(size).putInt(capacity);
+            buffer.putInt(model.spam_counter).putInt(model.appearences).putInt(model.numOfTrainData).putInt(hashed != null ? hashed.getBuckets() : 0 /* reserved */);
+            buffer.putDouble(model.spam_probability).putDouble(model.ham_probability);
+            buffer.putDouble(model.a_priori_entrophy).putDouble(model.a_priori_log_odds);
+            for(int slot = 0; slot < capacity; slot++) { // the table of a snapshot is shared with terms added after it
+                int entry = vocabulary.slots[slot];
+                buffer = write(channel, buffer, checksum, 4).putInt(entry <= size ? entry : 0);
+            }
+            for(int id = 0; id < terms.length; id++) buffer = write(channel, buffer, checksum, 4).putInt(vocabulary.hashes[id]);
+            for(int id = 0; id < size; id++) buffer = write(channel, buffer, checksum, 4).putInt(vocabulary.counts[id]);
+            for(int id = 0; id < size; id++) buffer = write(channel, buffer, checksum, 4).putInt(vocabulary.spamCounts[id]);
+            for(int id = 0; id < terms.length; id++) buffer = write(channel, buffer, checksum, 4).putInt(terms[id].length);
+            for(int id = 0; id < size; id++) buffer = write(channel, buffer, checksum, 8).putDouble(vocabulary.spamPosteriors[id]);
+            for(int id = 0; id < size; id++) buffer = write(channel, buffer, checksum, 8).putDouble(vocabulary.hamPosteriors[id]);
+            for(int id = 0; id < size; id++) buffer = write(channel, buffer, checksum, 8).putDouble(vocabulary.logLikelihoodRatios[id]);
+            if (hasInformationGain) {
+                for(int id = 0; id < size; id++) buffer = write(channel, buffer, checksum, 8).putDouble(model.a_posteriori_entrophy[id]);
+                for(int id = 0; id < size; id++) buffer = write(channel, buffer, checksum, 8).putDouble(model.information_gain[id]);
+            }
+            for(byte[] term: terms) {
+                for(int offset = 0; offset < term.length; ) {
+                    buffer = write(channel, buffer, checksum, 1);
+                    int chunk = Math.min(term.length - offset, buffer.remaining());
+                    buffer.put(term, offset, chunk);
+                    offset += chunk;
+                }
+            }
+            buffer = write(channel, buffer, checksum, buffer.capacity());
+            buffer.putLong(checksum.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            if (channel.size() != length) throw new IOException("Unexpected snapshot length: " + channel.size());
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     *  A method flushing the buffer to the channel, updating the checksum, unless it can hold the given bytes.
+     */
+    private static ByteBuffer write(FileChannel channel, ByteBuffer buffer, CRC32 checksum, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) return buffer;
+        buffer.flip();
+        checksum.update(buffer.array(), 0, buffer.limit());
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     *  A method loading a classifier from a snapshot; ready for classifying documents.
+     *  @param path The path of the snapshot to be read.
+     *  @return The loaded classifier.
+     *  @throws IOException If the snapshot could not be read, is malformed or its checksum does not match.
+     */
+    public static NaiveBayes load(String path) throws IOException {
+        MappedByteBuffer mapped;
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            mapped = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+        } finally { // mappings remain valid after the file is closed
+            file.close();
+        }
+        ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < HEADER_LENGTH + 8 || buffer.getInt() != MAGIC) throw new IOException("Not a model snapshot: " + path);
+        if (buffer.getInt() != VERSION) throw new IOException("Unsupported model snapshot version: " + path);
+        ByteBuffer contents = buffer.duplicate();
+        contents.position(0).limit(buffer.limit() - 8);
+        CRC32 checksum = new CRC32();
+        checksum.update(contents);
+        if (checksum.getValue() != buffer.getLong(buffer.limit() - 8)) throw new IOException("Corrupted model snapshot: " + path);
+
+        int flags = buffer.getInt(), size = buffer.getInt(), capacity = buffer.getInt();
+        boolean isHashed = (flags & HASHED) != 0;
+        if (size < 0 || capacity < 0 || (isHashed ? capacity != 0 : capacity < 32 || Integer.bitCount(capacity) != 1 || size > capacity / 2)
+                || HEADER_LENGTH + 4L * capacity + 4L * size * (isHashed ? 2 : 4) + 8L * size * ((flags & HAS_INFORMATION_GAIN) != 0 ? 5 : 3) + 8 > buffer.limit()) {
+            throw new IOException("Malformed model snapshot: " + path);
+        }
+        NaiveBayes model = new NaiveBayes();
+        model.spam_counter = buffer.getInt();
+        model.appearences = buffer.getInt();
+        model.numOfTrainData = buffer.getInt();
+        int buckets = buffer.getInt(); // reserved, unless hashed
+        model.spam_probability = buffer.getDouble();
+        model.ham_probability = buffer.getDouble();
+        model.a_priori_entrophy = buffer.getDouble();
+        model.a_priori_log_odds = buffer.getDouble();
+
+        if (isHashed) {
+            boolean signed = (flags & SIGNED) != 0;
+            if (buckets < 1 || (signed ? 2L * buckets : buckets) != size) throw new IOException("Malformed model snapshot: " + path);
+            HashedTermDictionary hashed = new HashedTermDictionary(buckets, signed);
+            readInts(buffer, hashed.counts, size);
+            readInts(buffer, hashed.spamCounts, size);
+            readPosteriors(buffer, model, hashed, flags, size);
+            model.vocabulary = hashed;
+            return model;
+        }
+        TermDictionary vocabulary = new TermDictionary(capacity / 2);
+        if (vocabulary.slots.length != capacity) throw new IOException("Malformed model snapshot: " + path);
+        vocabulary.size = size;
+        readInts(buffer, vocabulary.slots, capacity);
+        for(int slot = 0; slot < capacity; slot++) {
+            if (vocabulary.slots[slot] < 0 || vocabulary.slots[slot] > size) throw new IOException("Malformed model snapshot: " + path);
+        }
+        readInts(buffer, vocabulary.hashes, size);
+        readInts(buffer, vocabulary.counts, size);
+        readInts(buffer, vocabulary.spamCounts, size);
+        int[] termLengths = new int[size];
+        readInts(buffer, termLengths, size);
+        long termBytes = 0;
+        for(int id = 0; id < size; id++) {
+            if (termLengths[id] < 0) throw new IOException("Malformed model snapshot: " + path);
+            termBytes += termLengths[id];
+        }
+        if (buffer.position() + 8L * size * ((flags & HAS_INFORMATION_GAIN) != 0 ? 5 : 3) + termBytes + 8 != buffer.limit()) {
+            throw new IOException("Malformed model snapshot: " + path);
+        }
+        readPosteriors(buffer, model, vocabulary, flags, size);
+        Charset utf8 = Charset.forName("UTF-8");
+        byte[] term = new byte[256];
+        for(int id = 0; id < size; id++) {
+            if (termLengths[id] > term.length) term = new byte[Math.max(termLengths[id], term.length * 2)];
+            buffer.get(term, 0, termLengths[id]);
+            vocabulary.terms[id] = new String(term, 0, termLengths[id], utf8);
+        }
+        model.vocabulary = vocabulary;
+        return model;
+    }
+
+    /**
+     *  A method reading the a posteriori probabilities, the log-likelihood ratios and the optional information gain
+     *  arrays; advancing the position of the buffer.
+     */
+    private static void readPosteriors(ByteBuffer buffer, NaiveBayes model, TermDictionary vocabulary, int flags, int size) {
+        vocabulary.allocatePosteriors();
+        readDoubles(buffer, vocabulary.spamPosteriors, size);
+        readDoubles(buffer, vocabulary.hamPosteriors, size);
+        readDoubles(buffer, vocabulary.logLikelihoodRatios, size);
+        if ((flags & HAS_INFORMATION_GAIN) != 0) {
+            model.a_posteriori_entrophy = new double[size];
+            model.information_gain = new double[size];
+            readDoubles(buffer, model.a_posteriori_entrophy, size);
+            readDoubles(buffer, model.information_gain, size);
+        }
+    }
+
+    /**
+     *  A method copying a primitive array in bulk out of the buffer; advancing its position.
+     */
+    private static void readInts(ByteBuffer buffer, int[] array, int length) {
+        buffer.asIntBuffer().get(array, 0, length);
+        buffer.position(buffer.position() + 4 * length);
+    }
+
+    /**
+     *  A method copying a primitive array in bulk out of the buffer; advancing its position.
+     */
+    private static void readDoubles(ByteBuffer buffer, double[] array, int length) {
+        buffer.asDoubleBuffer().get(array, 0, length);
+        buffer.position(buffer.position() + 8 * length);
+    }
+}
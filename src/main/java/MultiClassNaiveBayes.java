@@ -0,0 +1,396 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ *  MultiClassNaiveBayes.java
+ *  A multinomial Naive Bayes classifier of any number of categories; such as phishing, promotions, newsletters and ham.
+ *  Terms are assigned ids by a term dictionary, as in the NaiveBayes class, while their statistics per category are
+ *  kept in term-major primitive matrices; the counts and the log a posteriori probabilities of a term in every category
+ *  are stored next to each other, at [id * classes + category], so that scoring a document across all categories
+ *  touches a single contiguous run of values per token. The a posteriori probabilities are LaPlace estimations,
+ *  (count + 1) / (category tokens + vocabulary size), and documents are scored in log space. Feature selection ranks
+ *  the terms by their information gain about the category of a token. The labels of the documents are taken from a
+ *  LabelledCorpus.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class MultiClassNaiveBayes {
+    /**
+     * The term dictionary assigning the term ids; its counts hold the occurrences of every term in all categories.
+     */
+    protected TermDictionary vocabulary;
+
+    /**
+     * The tokenizer shared by the train and test document readers.
+     */
+    protected Tokenizer tokenizer;
+
+    /**
+     * The labels of the categories; indexed by category.
+     */
+    protected String[] labels;
+
+    /**
+     * The occurrences of every term per category; term-major, at [id * classes + category].
+     */
+    protected int[] classCounts;
+
+    /**
+     * The log a posteriori probabilities of every term per category; term-major, at [id * classes + category].
+     */
+    protected double[] logPosteriors;
+
+    /**
+     * The log a priori probabilities of the categories; indexed by category.
+     */
+    protected double[] logPriors;
+
+    /**
+     * The information gain of every term; indexed by term ids.
+     */
+    protected double[] information_gain;
+
+    /**
+     * The confusion matrices of the simple and the k-Best classifications; at [actual * classes + predicted].
+     */
+    protected long[] confusion, k_best_confusion;
+
+    /**
+     *  The actual data classification results, as well as the k-best properties selection ones; each one recording the
+     *  log probability of the predicted category.
+     */
+    protected ArrayList<Vec2<String, Double>> results, k_best_results;
+
+    /*
+     * Local variables.
+     */
+    protected int classes, numOfTrainData;
+    protected int[] classDocuments;
+    protected long[] classTokens;
+    protected long tokens;
+
+    /**
+     * Default constructor override.
+     * @param labels The labels of the categories; indexed by category.
+     */
+    public MultiClassNaiveBayes(String[] labels) {
+        if (labels.length < 2) throw new IllegalArgumentException("At least two categories are required: " + labels.length);
+        this.labels = labels.clone();
+        this.classes = labels.length;
+        vocabulary = new TermDictionary();
+        tokenizer = new DefaultTokenizer();
+        classCounts = new int[vocabulary.counts.length * classes];
+        classDocuments = new int[classes];
+        classTokens = new long[classes];
+        confusion = new long[classes * classes];
+        k_best_confusion = new long[classes * classes];
+    }
+
+    /**
+     * Setter for the tokenizer.
+     * @param tokenizer The tokenizer to be used by the document readers.
+     */
+    public void setTokenizer(Tokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+    /**
+     * Getter for the labels of the categories.
+     * @return The labels; indexed by category.
+     */
+    public String[] getLabels() {
+        return labels.clone();
+    }
+
+    /**
+     * A method locating the category of a label.
+     * @param label The label of the category.
+     * @return The index of the category, or -1 if the label is unknown.
+     */
+    public int getCategory(String label) {
+        for(int category = 0; category < classes; category++) {
+            if (labels[category].equals(label)) return category;
+        }
+        return -1;
+    }
+
+    /**
+     * A method tokenizing the contents of a train document into the vocabulary and the category counts.
+     * @param content The encoded contents of the document.
+     * @param category The category of the document.
+     */
+    public void ReadTrainDocument(ByteBuffer content, final int category) {
+        classDocuments[category]++;
+        numOfTrainData++;
+        final long before = tokens;
+        tokenizer.tokenize(content, new TokenSink() {
+            public void accept(char[] buffer, int offset, int length, int hash) {
+                int id = vocabulary.add(buffer, offset, length, hash);
+                if (id * classes >= classCounts.length) classCounts = Arrays.copyOf(classCounts, vocabulary.counts.length * classes);
+                classCounts[id * classes + category]++;
+                vocabulary.counts[id]++;
+                tokens++;
+            }
+        });
+        classTokens[category] += tokens - before;
+        NaiveBayes.TRAIN_DOCUMENTS.increment();
+        NaiveBayes.TRAIN_TOKENS.add(tokens - before);
+    }
+
+    /**
+     * A method tokenizing the contents of a test document.
+     * @param name The name of the document.
+     * @param content The encoded contents of the document.
+     * @return The name together with the ids of its vocabulary inclusive tokens.
+     */
+    public Vec2<String, int[]> ReadTestDocument(String name, ByteBuffer content) {
+        TermIdCollector containingTokens = new TermIdCollector(vocabulary);
+        tokenizer.tokenize(content, containingTokens);
+        int[] ids = containingTokens.toArray();
+        NaiveBayes.TEST_DOCUMENTS.increment();
+        NaiveBayes.TEST_TOKENS.add(containingTokens.getTokens());
+        NaiveBayes.OOV_TOKENS.add(containingTokens.getTokens() - ids.length);
+        return new Vec2<String, int[]>(name, ids);
+    }
+
+    /**
+     *  A method calculating the log a priori probabilities of the categories; from their train documents. Categories
+     *  without train documents are never predicted.
+     */
+    public void GetAPrioriProbabilities() {
+        logPriors = new double[classes];
+        for(int category = 0; category < classes; category++) logPriors[category] = Math.log(classDocuments[category] / (double) numOfTrainData);
+    }
+
+    /**
+     *  A method calculating the log a posteriori probabilities of every term in every category; into the term-major
+     *  matrix. For further information also check the documentation of the MultiClassNaiveBayes class.
+     */
+    public void GetAPosterioriProbabilities() {
+        int size = vocabulary.size();
+        double[] logDenominators = new double[classes];
+        for(int category = 0; category < classes; category++) logDenominators[category] = Math.log(classTokens[category] + (double) size);
+        logPosteriors = new double[size * classes];
+        for(int cell = 0; cell < size * classes; cell++) logPosteriors[cell] = Math.log(classCounts[cell] + 1.0) - logDenominators[cell % classes];
+        NaiveBayes.VOCABULARY_SIZE.set(size);
+    }
+
+    /**
+     *  A method scoring a document in log space for every category; as the log a priori probability of the category
+     *  plus the log a posteriori probabilities of the words of the document in it.
+     *  @param tokens The ids of the vocabulary inclusive tokens of the document.
+     *  @param scores The log probabilities of the document per category, up to a common constant; filled by the method.
+     *  @return The predicted category; the first one of the highest score.
+     */
+    public int GetLogScores(int[] tokens, double[] scores) {
+        return GetKBestLogScores(tokens, null, scores);
+    }
+
+    /**
+     *  A method scoring a document in log space for every category; using only the k-Best features. For further
+     *  information also check the documentation of the GetLogScores() method.
+     *  @param tokens The ids of the vocabulary inclusive tokens of the document.
+     *  @param k_best_properties The set of the ids of the k-Best properties; or NULL for using every property.
+     *  @param scores The log probabilities of the document per category, up to a common constant; filled by the method.
+     *  @return The predicted category; the first one of the highest score.
+     */
+    public int GetKBestLogScores(int[] tokens, BitSet k_best_properties, double[] scores) {
+        double[] logPosteriors = this.logPosteriors;
+        int classes = this.classes;
+        System.arraycopy(logPriors, 0, scores, 0, classes);
+        for(int word: tokens) {
+            if (k_best_properties != null && !k_best_properties.get(word)) continue;
+            for(int category = 0, cell = word * classes; category < classes; category++, cell++) scores[category] += logPosteriors[cell];
+        }
+        int predicted = 0;
+        for(int category = 1; category < classes; category++) {
+            if (scores[category] > scores[predicted]) predicted = category;
+        }
+        return predicted;
+    }
+
+    /**
+     *  A method classifying a document and recording the outcome; into the confusion matrix and the results.
+     *  @param fileData The filename together with the ids of its vocabulary inclusive tokens.
+     *  @param category The actual category of the document.
+     */
+    public void GetClassificationConclusions(Vec2<String, int[]> fileData, int category) {
+        if (results == null) results = new ArrayList<Vec2<String, Double>>();
+        double[] scores = new double[classes];
+        long start = System.nanoTime();
+        int predicted = GetLogScores(fileData.getYValue(), scores);
+        NaiveBayes.SCORE_LATENCY.record(System.nanoTime() - start);
+        NaiveBayes.SCORED_DOCUMENTS.increment();
+        results.add(new Vec2<String, Double>(fileData.getTValue() + " " + labels[predicted], scores[predicted]));
+        confusion[category * classes + predicted]++;
+    }
+
+    /**
+     *  A method classifying a document with the k-Best features and recording the outcome; into the k-Best confusion
+     *  matrix and results.
+     *  @param fileData The filename together with the ids of its vocabulary inclusive tokens.
+     *  @param k_best_properties The set of the ids of the k-Best properties.
+     *  @param category The actual category of the document.
+     */
+    public void GetKBestClassificationConclusions(Vec2<String, int[]> fileData, BitSet k_best_properties, int category) {
+        if (k_best_results == null) k_best_results = new ArrayList<Vec2<String, Double>>();
+        double[] scores = new double[classes];
+        long start = System.nanoTime();
+        int predicted = GetKBestLogScores(fileData.getYValue(), k_best_properties, scores);
+        NaiveBayes.K_BEST_SCORE_LATENCY.record(System.nanoTime() - start);
+        k_best_results.add(new Vec2<String, Double>(fileData.getTValue() + " " + labels[predicted], scores[predicted]));
+        k_best_confusion[category * classes + predicted]++;
+    }
+
+    /**
+     *  A method selecting the k-Best properties; the terms of the highest information gain about the category of a
+     *  token. The gain of a term is the entrophy of the categories minus the expected entrophy after observing whether
+     *  a token is the term or not; with LaPlace estimations of both conditional distributions. The per-term statistics
+     *  are read in term-major order, one contiguous run per term.
+     *  @param k The data percentage to be used from the vocabulary dataset; as the k-best.
+     *  @return The set of the ids of the k-Best properties.
+     */
+    public BitSet GetInformationGainConclusions(double k) {
+        long start = System.nanoTime();
+        int size = vocabulary.size();
+        double total = tokens, a_priori_entrophy = 0.0;
+        for(int category = 0; category < classes; category++) {
+            double probability = classTokens[category] / total;
+            if (probability > 0) a_priori_entrophy -= probability * Math.log(probability);
+        }
+        information_gain = new double[size];
+        for(int word = 0, cell = 0; word < size; word++) {
+            int nodal = vocabulary.counts[word];
+            double present = nodal + (double) classes, absent = total - nodal + classes;
+            double present_entrophy = 0.0, absent_entrophy = 0.0;
+            for(int category = 0; category < classes; category++, cell++) {
+                double p = (classCounts[cell] + 1.0) / present;
+                double q = (classTokens[category] - classCounts[cell] + 1.0) / absent;
+                present_entrophy -= p * Math.log(p);
+                absent_entrophy -= q * Math.log(q);
+            }
+            double word_nodal_probability = nodal / total;
+            information_gain[word] = (a_priori_entrophy - word_nodal_probability * present_entrophy - (1.0 - word_nodal_probability) * absent_entrophy) / Math.log(2);
+        }
+        int kept = size - (int) (Math.abs(1.0 - k) * size);
+        BitSet k_best_properties = TopKSelector.select(information_gain, size, kept);
+        NaiveBayes.FEATURE_SELECTION_PHASE.record(System.nanoTime() - start);
+        System.out.println("DIMENSIONALITY REDUCTION \nINITIAL: " + size + " REMAINING: " + k_best_properties.cardinality() + "\n");
+        return k_best_properties;
+    }
+
+    /**
+     *  A method training the classifier on every document of a labelled corpus; and computing its probabilities. The
+     *  labels of the corpus must be the ones of the classifier.
+     *  @param corpus The labelled train corpus.
+     */
+    public void Train(LabelledCorpus corpus) {
+        int[] categories = Categories(corpus);
+        for(int train = 0; train < corpus.size(); train++) {
+            try {
+                ReadTrainDocument(corpus.getContent(train), categories[corpus.getCategory(train)]);
+            } catch (IOException e) {
+                System.err.println("The system could not find the file specified");
+                e.printStackTrace();
+            }
+        }
+        GetAPrioriProbabilities();
+        GetAPosterioriProbabilities();
+    }
+
+    /**
+     *  A method classifying every document of a labelled corpus, with all features as well as with the k-Best ones;
+     *  recording the outcomes into the confusion matrices.
+     *  @param corpus The labelled test corpus; its labels must be known to the classifier.
+     *  @param k_best_properties The set of the ids of the k-Best properties.
+     */
+    public void Evaluate(LabelledCorpus corpus, BitSet k_best_properties) {
+        int[] categories = Categories(corpus);
+        for(int test = 0; test < corpus.size(); test++) {
+            ByteBuffer content;
+            try {
+                content = corpus.getContent(test);
+            } catch (IOException e) {
+                System.err.println("The system could not find the file specified");
+                e.printStackTrace();
+                content = ByteBuffer.allocate(0);
+            }
+            Vec2<String, int[]> testData = ReadTestDocument(corpus.getName(test), content);
+            int category = categories[corpus.getCategory(test)];
+            GetClassificationConclusions(testData, category);
+            GetKBestClassificationConclusions(testData, k_best_properties, category);
+        }
+    }
+
+    /**
+     *  A method mapping the categories of a corpus onto the ones of the classifier; by label.
+     */
+    private int[] Categories(LabelledCorpus corpus) {
+        String[] corpusLabels = corpus.getLabels();
+        int[] categories = new int[corpusLabels.length];
+        for(int category = 0; category < corpusLabels.length; category++) {
+            categories[category] = getCategory(corpusLabels[category]);
+            if (categories[category] < 0) throw new IllegalArgumentException("Unknown category: " + corpusLabels[category]);
+        }
+        return categories;
+    }
+
+    /**
+     *  Getter for the accuracy of the simple or the k-Best classifications.
+     *  @param k_best true for the k-Best classifications.
+     *  @return The ratio of right predictions.
+     */
+    public double getAccuracy(boolean k_best) {
+        long[] matrix = k_best ? k_best_confusion : confusion;
+        long right = 0, total = 0;
+        for(int cell = 0; cell < matrix.length; cell++) {
+            total += matrix[cell];
+            if (cell / classes == cell % classes) right += matrix[cell];
+        }
+        return right / (double) total;
+    }
+
+    /**
+     *  A method resetting the confusion matrices and the results.
+     */
+    protected void reset() {
+        results = k_best_results = null;
+        Arrays.fill(confusion, 0);
+        Arrays.fill(k_best_confusion, 0);
+    }
+
+    /**
+     *  Method outputting the results to default output stream (System.out); the accuracy, the precision, recall and F1
+     *  per category, and the confusion matrix of actual categories by row against predicted ones by column.
+     */
+    public void OutputResults() {
+        OutputResults(confusion);
+        System.out.println("\n*** USING FEATURE SELECTION ***");
+        OutputResults(k_best_confusion);
+        System.out.println();
+    }
+
+    /**
+     *  A method outputting the statistics of a confusion matrix.
+     */
+    private void OutputResults(long[] matrix) {
+        System.out.println("Accuracy: " + getAccuracy(matrix == k_best_confusion));
+        for(int category = 0; category < classes; category++) {
+            long predicted = 0, actual = 0, right = matrix[category * classes + category];
+            for(int other = 0; other < classes; other++) {
+                predicted += matrix[other * classes + category];
+                actual += matrix[category * classes + other];
+            }
+            double precision = right / (double) predicted, recall = right / (double) actual;
+            double F1 = 2 * precision * recall / (precision + recall);
+            System.out.println(labels[category] + ": Precision: " + precision + " Recall: " + recall + " F1: " + F1);
+        }
+        for(int category = 0; category < classes; category++) {
+            StringBuilder row = new StringBuilder(labels[category]).append(':');
+            for(int other = 0; other < classes; other++) row.append(' ').append(matrix[category * classes + other]);
+            System.out.println(row);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+
+/**
+ *  MultiVariantEvaluator.java
+ *  Evaluates several k-Best feature selection variants of a trained classifier in a single pass over a corpus. Since
+ *  the k-Best properties of a smaller k are contained in those of every larger k, each word is assigned the smallest
+ *  variant containing it; so that a document, tokenized once, is scored for all variants by accumulating the
+ *  log-likelihood ratio of every word into the slot of its smallest variant and summing the slots in order. With a
+ *  quantized model, every variant is scored with the quantized ratios instead; as GetKBestLogOdds() of the classifier
+ *  would. The classifier is held shared while the variants are selected and while every document is scored; so that
+ *  documents may be learned meanwhile.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class MultiVariantEvaluator {
+    /*
+     *  Local variables.
+     */
+    private final NaiveBayes classifier;
+    private final double[] kappas;
+    private final int[] order, smallestVariant;
+    private final BitSet[] properties;
+    private final ConfusionMatrix[] matrices;
+
+    /**
+     *  Default constructor override; selecting the k-Best properties of every variant.
+     *  @param classifier The trained classifier; after its a posteriori probabilities have been computed.
+     *  @param kappas The data percentages to be used from the vocabulary dataset; one per variant.
+     */
+    public MultiVariantEvaluator(NaiveBayes classifier, double[] kappas) {
+        this.classifier = classifier;
+        this.kappas = kappas.clone();
+        int variants = kappas.length;
+        final int[] counts = new int[variants];
+        Integer[] sorted = new Integer[variants];
+        order = new int[variants]; // variants by increasing number of k-Best properties
+        properties = new BitSet[variants];
+        classifier.lock.readLock().lock();
+        try {
+            int size = classifier.vocabulary.size();
+            for(int v = 0; v < variants; v++) {
+                counts[v] = classifier.GetKBestCount(kappas[v]);
+                sorted[v] = v;
+            }
+            Arrays.sort(sorted, new Comparator<Integer>() {
+                public int compare(Integer a, Integer b) {
+                    return counts[a] - counts[b];
+                }
+            });
+            for(int v = 0; v < variants; v++) order[v] = sorted[v];
+            smallestVariant = new int[size];
+            Arrays.fill(smallestVariant, variants); // words contained in no variant
+            double[] information_gain = classifier.GetInformationGain();
+            for(int slot = variants - 1; slot >= 0; slot--) {
+                BitSet k_best_properties = properties[slot] = TopKSelector.select(information_gain, size, counts[order[slot]]);
+                for(int word = k_best_properties.nextSetBit(0); word >= 0; word = k_best_properties.nextSetBit(word + 1)) smallestVariant[word] = slot;
+            }
+        } finally {
+            classifier.lock.readLock().unlock();
+        }
+        matrices = new ConfusionMatrix[variants];
+        for(int v = 0; v < variants; v++) matrices[v] = new ConfusionMatrix();
+    }
+
+    /**
+     *  A method scoring a tokenized document for every variant.
+     *  @param tokens The ids of the vocabulary inclusive tokens of the document.
+     *  @param logOdds The log-odds of the document being spam per variant; in the order the variants were given.
+     *  @param slots Scratch space of one more element than the number of variants.
+     */
+    public void Score(int[] tokens, double[] logOdds, double[] slots) {
+        classifier.lock.readLock().lock();
+        try {
+            QuantizedModel quantized = classifier.quantized;
+            if (quantized != null) {
+                for(int slot = 0; slot < order.length; slot++) logOdds[order[slot]] = quantized.GetKBestLogOdds(tokens, properties[slot]);
+                return;
+            }
+            double[] logLikelihoodRatios = classifier.vocabulary.logLikelihoodRatios;
+            Arrays.fill(slots, 0.0);
+            for(int word: tokens) {
+                if (word < smallestVariant.length) slots[smallestVariant[word]] += logLikelihoodRatios[word]; // words learned later belong to no variant
+            }
+            double sum = classifier.a_priori_log_odds;
+            for(int slot = 0; slot < order.length; slot++) {
+                sum += slots[slot];
+                logOdds[order[slot]] = sum;
+            }
+        } finally {
+            classifier.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *  A method classifying every document of a corpus for every variant; accumulating the confusion matrices.
+     *  @param corpus The corpus to be classified.
+     *  @throws IOException If a document could not be read.
+     */
+    public void Evaluate(CorpusSource corpus) throws IOException {
+        double[] logOdds = new double[kappas.length], slots = new double[kappas.length + 1];
+        for(int i = 0; i < corpus.size(); i++) {
+            int[] tokens = classifier.ReadTestDocument(corpus.getName(i), corpus.getContent(i)).getYValue();
+            Score(tokens, logOdds, slots);
+            boolean spam = corpus.isSpam(i);
+            for(int v = 0; v < kappas.length; v++) matrices[v].add(logOdds[v] >= 0, spam);
+        }
+    }
+
+    /**
+     *  Getter for the confusion matrices.
+     *  @return The confusion matrix per variant; in the order the variants were given.
+     */
+    public ConfusionMatrix[] getConfusionMatrices() {
+        return matrices;
+    }
+
+    /**
+     *  Method outputting the statistics of every variant to default output stream (System.out).
+     */
+    public void OutputResults() {
+        for(int v = 0; v < kappas.length; v++) {
+            System.out.println(String.format("k=%.3f (%d properties): ", kappas[v], classifier.GetKBestCount(kappas[v])) + matrices[v]);
+        }
+    }
+}
@@ -1,11 +1,17 @@
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.math3.analysis.function.Abs;
-import org.apache.commons.math3.analysis.function.Log;
+import org.apache.commons.math3.util.FastMath;
 
 /**
  *  NaiveBayes.java
@@ -13,11 +19,22 @@ import org.apache.commons.math3.analysis.function.Log;
  */
 public class NaiveBayes {
     /**
-     * Static field used as data accessor between readFile & the vocabulary instances; implementing
-     * a parameterized tokens dynamic container if reading was successful, being assigned contents of the
-     * datasets, otherwise NULL.
+     * Field used as data accessor between readFile & the vocabulary instances; implementing a primitive-specialized
+     * term dictionary if reading was successful, being assigned contents of the datasets, otherwise NULL. Every
+     * instance owns its own vocabulary; so that several classifiers may be trained and evaluated side by side.
      */
-    protected static HashMap<String, Vec2<Vec2<Integer, Integer>, Vec2<Double,Double>>> vocabulary;
+    protected TermDictionary vocabulary;
+
+    /**
+     * The tokenizer shared by the train and test file readers.
+     */
+    protected Tokenizer tokenizer;
+
+    /**
+     * The frequency sketch admitting terms into the vocabulary after a minimum number of occurrences while training;
+     * or NULL for admitting every term at once.
+     */
+    protected FrequencySketch sketch;
 
     /**
      *  The actual data classification results.
@@ -40,34 +57,138 @@ public class NaiveBayes {
     ArrayList<Vec2<Integer, Double>> k_best_dataPlotPts;
 
     /**
-     *  The a posteriori entrophy values per category.
+     *  The a posteriori entrophy values, as well as the information gain, per term; indexed by term ids.
+     */
+    protected double[] a_posteriori_entrophy, information_gain;
+
+    /**
+     *  The metrics of reading, tokenizing and scoring documents; shared by every instance. For further information
+     *  also check the documentation of the MetricsRegistry class.
+     */
+    static final Counter TRAIN_DOCUMENTS = MetricsRegistry.DEFAULT.counter("train.documents");
+    static final Counter TRAIN_TOKENS = MetricsRegistry.DEFAULT.counter("train.tokens");
+    static final Counter TEST_DOCUMENTS = MetricsRegistry.DEFAULT.counter("test.documents");
+    static final Counter TEST_TOKENS = MetricsRegistry.DEFAULT.counter("test.tokens");
+    static final Counter OOV_TOKENS = MetricsRegistry.DEFAULT.counter("test.tokens.oov");
+    static final Gauge OOV_RATE = MetricsRegistry.DEFAULT.ratio("test.oov.rate", OOV_TOKENS, TEST_TOKENS);
+    static final Gauge VOCABULARY_SIZE = MetricsRegistry.DEFAULT.gauge("vocabulary.size");
+    static final Counter SCORED_DOCUMENTS = MetricsRegistry.DEFAULT.counter("score.documents");
+    static final LatencyHistogram SCORE_LATENCY = MetricsRegistry.DEFAULT.histogram("score.latency");
+    static final LatencyHistogram K_BEST_SCORE_LATENCY = MetricsRegistry.DEFAULT.histogram("score.kbest.latency");
+    static final LatencyHistogram FEATURE_SELECTION_PHASE = MetricsRegistry.DEFAULT.histogram("phase.feature_selection");
+
+    /**
+     *  The natural logarithm of 2; for computing base-2 logarithms with a single logarithm.
      */
-    protected ArrayList<Vec2<String,Vec2<Double, Double>>> a_posteriori_entrophy;
+    private static final double LOG_2 = FastMath.log(2);
+
+    /**
+     *  The appearences below which the a posteriori entrophy of a word is looked up rather than computed; since words of
+     *  equal appearences in each category share it, and most words have few appearences.
+     */
+    private static final int ENTROPHY_TABLE_COUNTS = 64;
+
+    /**
+     *  The minimum number of words per task of the information gain computation.
+     */
+    private static final int INFORMATION_GAIN_CHUNK = 1 << 14;
 
     /*
     * Local variables.
     */
-    protected static int currentClassifications = 0, k_best_currentClassifications = 0;
+    protected int currentClassifications = 0, k_best_currentClassifications = 0;
     protected int TP, TN, FP, FN, k_best_TP, k_best_TN, k_best_FP, k_best_FN;
     protected int spam_counter, appearences, numOfTestData, numOfTrainData;
-    protected double spam_probability, ham_probability, a_priori_entrophy;
+    protected double spam_probability, ham_probability, a_priori_entrophy, a_priori_log_odds;
+    protected volatile QuantizedModel quantized;
+
+    /**
+     * The lock guarding the vocabulary between online updates and scoring; shared by the threads reading test
+     * documents and scoring them, and held exclusively by LearnDocument(), since growing the term dictionary and the
+     * a posteriori probabilities arrays replaces their arrays one at a time.
+     */
+    protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
     /**
      * Default comparator override.
      */
     public NaiveBayes() {
-        vocabulary = new HashMap<String, Vec2<Vec2<Integer, Integer>, Vec2<Double,Double>>>();
+        this(new TermDictionary());
+    }
+
+    /**
+     * Overloaded constructor training into a given empty term dictionary; such as a HashedTermDictionary, for a model
+     * of a fixed memory footprint.
+     * @param vocabulary The empty term dictionary.
+     */
+    public NaiveBayes(TermDictionary vocabulary) {
+        this.vocabulary = vocabulary;
+        tokenizer = new DefaultTokenizer();
         spam_counter = appearences = 0;
     }
 
+    /**
+     * Setter for the tokenizer shared by the train and test file readers.
+     * @param tokenizer The tokenizer to be used.
+     */
+    public void setTokenizer(Tokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+    /**
+     * Setter for the frequency sketch; to be set before training. The a priori probabilities and the appearences stay
+     * those of all the train documents; for further information also check the documentation of the CountToken()
+     * method.
+     * @param sketch The frequency sketch; or NULL for admitting every term at once.
+     */
+    public void setFrequencySketch(FrequencySketch sketch) {
+        this.sketch = sketch;
+    }
+
+    /**
+     * A method creating a count table over the vocabulary; sharing the frequency sketch of the classifier.
+     * @return The count table.
+     */
+    protected CountTable NewCountTable() {
+        CountTable table = new CountTable(vocabulary);
+        table.sketch = sketch;
+        return table;
+    }
+
+    /**
+     * A method creating a private partial count table; with an empty term dictionary of the same kind as the
+     * vocabulary, so that training workers may fill it concurrently. The frequency sketch is shared.
+     * @return The partial count table.
+     */
+    protected CountTable NewPartialTable() {
+        CountTable table = new CountTable(vocabulary.newPartial());
+        table.sketch = sketch;
+        return table;
+    }
+
+    /**
+     * A method creating a snapshot of the classifier as trained so far; sharing its tokenizer, with a snapshot of its
+     * vocabulary and copies of its counters, while the classifier keeps being trained. The a priori and a posteriori
+     * probabilities of the snapshot are not computed. For further information also check the documentation of the
+     * snapshot() method of the TermDictionary class.
+     * @return The snapshot.
+     */
+    protected NaiveBayes Snapshot() {
+        NaiveBayes snapshot = new NaiveBayes(vocabulary.snapshot());
+        snapshot.tokenizer = tokenizer;
+        snapshot.spam_counter = spam_counter;
+        snapshot.appearences = appearences;
+        snapshot.numOfTrainData = numOfTrainData;
+        return snapshot;
+    }
+
     /**
      * A method computing base-2 logarithms.
      * @param x The decimal number to calculate base-2 logarithm.
      * @return The base-2 logarithm computed.
      */
     public double log2(double x) {
-        Log log = new Log();
-        return log.value(x) / log.value(2);
+        return FastMath.log(x) / LOG_2;
     }
 
     /**
@@ -86,45 +207,165 @@ public class NaiveBayes {
      * @param filename The name of the given text file.
      */
     public void ReadTrainFile(String filename) {
-        BufferedReader br = null;
+        CountTable table = NewCountTable();
+        ReadTrainFile(filename, table);
+        spam_counter += table.spam_counter;
+        appearences += table.appearences;
+    }
+
+    /**
+     * A method tokenizing the contents of a train document into the vocabulary.
+     * @param content The encoded contents of the document.
+     * @param spam true if the document is spam.
+     */
+    public void ReadTrainDocument(ByteBuffer content, boolean spam) {
+        CountTable table = NewCountTable();
+        ReadTrainDocument(content, spam, table);
+        spam_counter += table.spam_counter;
+        appearences += table.appearences;
+    }
+
+    /**
+     * A method reading a given train file of a specific format described in comments; contents of which are
+     * assigned to the given partial count table if reading was successful; otherwise displays an error description.
+     * It does not touch any shared state, so that distinct tables may be filled concurrently.
+     * @param filename The name of the given text file.
+     * @param table The partial count table to be updated.
+     */
+    public void ReadTrainFile(String filename, CountTable table) {
         try {
-            br = new BufferedReader(new FileReader(filename));
-            if (isSpam(filename)) spam_counter++;
-            String sCurrentLine;
-            while ((sCurrentLine = br.readLine()) != null) {
-                sCurrentLine = sCurrentLine.trim().replaceAll(" +", " "); // unify whitespaces
-                String[] tuples_context = sCurrentLine.split(" "); // separator is: " " = [whitespace]
-                for(String token: tuples_context) {
-                    if (token.length() > 0 && (!Character.isLetter(token.charAt(token.length() - 1)))) token = token.substring(0, token.length() - 1);
-                    if (token.length() > 1) {
-                        if (vocabulary.containsKey(token)) {
-                            int current = vocabulary.get(token).getTValue().getTValue();
-                            vocabulary.get(token).getTValue().setTValue(current + 1);
-                            appearences++;
-                            if (isSpam(filename)) {
-                                current = vocabulary.get(token).getTValue().getYValue();
-                                vocabulary.get(token).getTValue().setYValue(current + 1);
-                            }
-                        } else {
-                            int isSpam = 0;
-                            if (isSpam(filename)) isSpam++;
-                            Vec2<Integer, Integer> probs = new Vec2<Integer, Integer>(1, isSpam);
-                            Vec2<Vec2<Integer, Integer>, Vec2<Double, Double>> wordVec = new Vec2<Vec2<Integer, Integer>, Vec2<Double, Double>>(probs, new Vec2<Double, Double>());
-                            vocabulary.put(token, wordVec);
-                        }
-                    }
-                }
-            }
+            ReadTrainDocument(ByteBuffer.wrap(Files.readAllBytes(Paths.get(filename))), isSpam(filename), table);
         } catch (IOException e) {
             System.err.println("The system could not find the file specified");
             e.printStackTrace();
-        } finally { // Stream closure should be executed at any case
-            try {
-                if (br != null) br.close();
-            } catch (IOException exception) {
-                exception.printStackTrace();
+        }
+    }
+
+    /**
+     * A method tokenizing the contents of a train document into the given partial count table. It does not touch
+     * any shared state, so that distinct tables may be filled concurrently.
+     * @param content The encoded contents of the document.
+     * @param spam true if the document is spam.
+     * @param table The partial count table to be updated.
+     */
+    public void ReadTrainDocument(ByteBuffer content, final boolean spam, final CountTable table) {
+        if (spam) table.spam_counter++;
+        long tokens = table.tokens;
+        tokenizer.tokenize(content, new TokenSink() {
+            public void accept(char[] buffer, int offset, int length, int hash) {
+                CountToken(table, buffer, offset, length, hash, spam);
+            }
+        });
+        TRAIN_DOCUMENTS.increment();
+        TRAIN_TOKENS.add(table.tokens - tokens);
+    }
+
+    /**
+     * A method counting an occurrence of a train token into a count table. Without a frequency sketch the token is
+     * added to the term dictionary at once; otherwise a token not yet contained is only recorded by the sketch, until
+     * it reaches the minimum frequency, and is then added with the earlier occurrences estimated by the sketch. When
+     * the sketch is shared by several partial tables, recording the occurrence and admitting the token is a single
+     * decision under the lock of the token, so that exactly one table admits it; the token is added to the others on
+     * their next occurrence of it, without earlier occurrences, which the admitting table already accounted for.
+     * Admission is recorded per term rather than per counter; so that a term is never taken for admitted because terms
+     * colliding with it were. Occurrences of tokens kept out of the
+     * dictionary still count as appearences, except for their first; so that the appearences stay those of admitting
+     * every token, up to collisions in the sketch, while the a priori probabilities depend on documents alone.
+     * @param table The count table to be updated.
+     * @param buffer The characters containing the token.
+     * @param offset The index of the first character of the token.
+     * @param length The number of characters of the token.
+     * @param hash The hash code of the token.
+     * @param spam true if the token occurred in a spam document.
+     * @return The id of the token; or -1 if it was not admitted into the term dictionary.
+     */
+    protected static int CountToken(CountTable table, char[] buffer, int offset, int length, int hash, boolean spam) {
+        TermDictionary vocabulary = table.vocabulary;
+        table.tokens++;
+        int id;
+        if (table.sketch == null) {
+            id = vocabulary.add(buffer, offset, length, hash);
+        } else if ((id = vocabulary.getId(buffer, offset, length, hash)) < 0) {
+            FrequencySketch sketch = table.sketch;
+            int seen, spamSeen = 0;
+            boolean admitted = false;
+            synchronized (sketch.lockOf(hash)) { // a single decision across the tables sharing the sketch
+                seen = sketch.add(hash, spam);
+                if (seen >= sketch.getMinFrequency()) {
+                    id = vocabulary.add(buffer, offset, length, hash);
+                    admitted = sketch.admit(vocabulary.terms[id]);
+                    if (admitted) spamSeen = sketch.spamEstimate(hash);
+                }
+            }
+            if (seen < sketch.getMinFrequency()) {
+                if (seen > 1) table.appearences++; // the first appearence is not counted
+                return -1;
+            }
+            if (admitted) { // admitted by this occurrence; otherwise by another table, counting the earlier occurrences
+                spamSeen = Math.max(Math.min(spamSeen, seen), spam ? 1 : 0);
+                vocabulary.counts[id] = seen - 1; // the earlier occurrences; this one is counted below
+                vocabulary.spamCounts[id] = spamSeen - (spam ? 1 : 0);
             }
         }
+        if (vocabulary.counts[id]++ > 0) table.appearences++; // the first appearence is not counted
+        if (spam) vocabulary.spamCounts[id]++;
+        return id;
+    }
+
+    /**
+     * A method tokenizing the contents of a train document into the given partial count table, exactly as
+     * ReadTrainDocument(ByteBuffer, boolean, CountTable) does; collecting the ids of its tokens as well, so that the
+     * document may be cached rather than read and tokenized again. For further information also check the
+     * documentation of the DocumentCache class.
+     * @param content The encoded contents of the document.
+     * @param spam true if the document is spam.
+     * @param table The partial count table to be updated.
+     * @return The ids of the tokens of the document in the term dictionary of the table; in order of appearence.
+     */
+    public int[] ReadTrainTokens(ByteBuffer content, final boolean spam, final CountTable table) {
+        if (spam) table.spam_counter++;
+        long tokens = table.tokens;
+        class Collector implements TokenSink {
+            int[] ids = new int[256];
+            int size = 0;
+
+            public void accept(char[] buffer, int offset, int length, int hash) {
+                int id = CountToken(table, buffer, offset, length, hash, spam);
+                if (id < 0) return;
+                if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+                ids[size++] = id;
+            }
+        }
+        Collector containingTokens = new Collector();
+        tokenizer.tokenize(content, containingTokens);
+        TRAIN_DOCUMENTS.increment();
+        TRAIN_TOKENS.add(table.tokens - tokens);
+        return Arrays.copyOf(containingTokens.ids, containingTokens.size);
+    }
+
+    /**
+     * A method merging a partial count table, filled by ReadTrainFile(String, CountTable), into the vocabulary.
+     * Appearences are accumulated exactly as if the table's files had been read sequentially after the ones
+     * already merged; the first appearence of a token in the vocabulary is never counted, so a token first seen
+     * by this table but having already appeared in the vocabulary contributes one extra appearence. Any quantized
+     * model is discarded.
+     * @param table The partial count table to be merged.
+     * @return The vocabulary id of every term of the table; indexed by its id in the table.
+     */
+    public int[] MergeCountTable(CountTable table) {
+        quantized = null; // the ratios no longer match the counts, and may not cover the merged terms
+        spam_counter += table.spam_counter;
+        appearences += table.appearences;
+        TermDictionary partial = table.vocabulary;
+        int[] merged = new int[partial.size()];
+        for(int partialId = 0; partialId < partial.size(); partialId++) {
+            int id = vocabulary.addFrom(partial, partialId);
+            if (vocabulary.counts[id] > 0 && partial.counts[partialId] > 0) appearences++;
+            vocabulary.counts[id] += partial.counts[partialId];
+            vocabulary.spamCounts[id] += partial.spamCounts[partialId];
+            merged[partialId] = id;
+        }
+        return merged;
     }
 
     /**
@@ -132,33 +373,66 @@ public class NaiveBayes {
      * assigned to a parameterized tokens dynamic container if reading was successful; otherwise displays an
      * error description.
      * @param filename The name of the given text file.
-     * @return The vocabulary inclusive tokens dynamic container.
+     * @return The filename together with the ids of its vocabulary inclusive tokens.
      */
-    public Vec2<String, ArrayList<String>> ReadTestFile(String filename) {
-        BufferedReader br = null;
-        ArrayList<String> containingTokens = new ArrayList<String>();
+    public Vec2<String, int[]> ReadTestFile(String filename) {
+        ByteBuffer content = ByteBuffer.allocate(0);
         try {
-            br = new BufferedReader(new FileReader(filename));
-            String sCurrentLine;
-            while ((sCurrentLine = br.readLine()) != null) {
-                sCurrentLine = sCurrentLine.trim().replaceAll(" +", " "); // unify whitespaces
-                String[] tuples_context = sCurrentLine.split(" "); // separator is: " " = [whitespace]
-                for(String token: tuples_context) {
-                    if (token.length() > 0 && (token.charAt(token.length() - 1)) == ('.')) token = token.substring(0, token.length() - 1);
-                    if (vocabulary.containsKey(token)) containingTokens.add(token);
-                }
-            }
+            content = ByteBuffer.wrap(Files.readAllBytes(Paths.get(filename)));
         } catch (IOException e) {
             System.err.println("The system could not find the file specified");
             e.printStackTrace();
-        } finally { // Stream closure should be executed at any case
-            try {
-                if (br != null) br.close();
-            } catch (IOException exception) {
-                exception.printStackTrace();
-            }
-            return new Vec2<String, ArrayList<String>>(filename, containingTokens);
         }
+        return ReadTestDocument(filename, content);
+    }
+
+    /**
+     * A method tokenizing the contents of a test document.
+     * @param name The name of the document.
+     * @param content The encoded contents of the document.
+     * @return The name together with the ids of its vocabulary inclusive tokens.
+     */
+    public Vec2<String, int[]> ReadTestDocument(String name, ByteBuffer content) {
+        TermIdCollector containingTokens;
+        lock.readLock().lock();
+        try {
+            containingTokens = new TermIdCollector(vocabulary);
+            tokenizer.tokenize(content, containingTokens);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return Measured(name, containingTokens);
+    }
+
+    /**
+     * A method tokenizing the characters of a test document.
+     * @param name The name of the document.
+     * @param text The characters of the document.
+     * @param offset The index of the first character.
+     * @param length The number of characters.
+     * @return The name together with the ids of its vocabulary inclusive tokens.
+     */
+    public Vec2<String, int[]> ReadTestDocument(String name, char[] text, int offset, int length) {
+        TermIdCollector containingTokens;
+        lock.readLock().lock();
+        try {
+            containingTokens = new TermIdCollector(vocabulary);
+            tokenizer.tokenize(text, offset, length, containingTokens);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return Measured(name, containingTokens);
+    }
+
+    /**
+     * A method recording the tokens of a test document; as well as the ones not contained in the vocabulary.
+     */
+    private Vec2<String, int[]> Measured(String name, TermIdCollector containingTokens) {
+        int[] ids = containingTokens.toArray();
+        TEST_DOCUMENTS.increment();
+        TEST_TOKENS.add(containingTokens.getTokens());
+        OOV_TOKENS.add(containingTokens.getTokens() - ids.length);
+        return new Vec2<String, int[]>(name, ids);
     }
 
     /**
@@ -169,6 +443,7 @@ public class NaiveBayes {
     public void GetAPrioriProbabilities() {
         spam_probability = spam_counter/(double)numOfTrainData;
         ham_probability = 1.0 - spam_probability;
+        a_priori_log_odds = Math.log(spam_probability) - Math.log(ham_probability);
     }
 
     /**
@@ -185,17 +460,157 @@ public class NaiveBayes {
      *  A method calculating a posteriori probabilities for the appearence of each word in the vocabulary dataset
      *  used for training, to be stored in the existent two-dimensional vectors and be later on used for computing "naive"
      *  classification estimates for the mail documents. The term "Naive" is adopted because of the naive independence
-     *   assumption between every pair of features.
+     *   assumption between every pair of features. The log-likelihood ratio of each word is precomputed as well; so that
+     *   documents may be scored as a plain sum over their term ids.
      */
     public void GetAPosterioriProbabilities() {
-        Set<String> words = vocabulary.keySet();
-        Iterator<String> currentToken = words.iterator();
-        while(currentToken.hasNext()) {
-            String nextToken = currentToken.next();
-            int nodal = vocabulary.get(nextToken).getTValue().getTValue();
-            int spam = vocabulary.get(nextToken).getTValue().getYValue();
-            vocabulary.get(nextToken).getYValue().setTValue((spam + 1.0)/(nodal + 2.0));
-            vocabulary.get(nextToken).getYValue().setYValue(((nodal - spam) + 1.0)/(nodal + 2.0));
+        quantized = null; // computed from the ratios being replaced
+        vocabulary.allocatePosteriors();
+        for(int id = 0; id < vocabulary.size(); id++) GetAPosterioriProbabilities(id);
+        VOCABULARY_SIZE.set(vocabulary.size());
+    }
+
+    /**
+     *  A method calculating the a posteriori probabilities, as well as the log-likelihood ratio, of a single word.
+     *  @param id The id of the word; covered by the a posteriori probabilities arrays.
+     */
+    protected void GetAPosterioriProbabilities(int id) {
+        int nodal = vocabulary.countOf(id);
+        int spam = vocabulary.spamCountOf(id);
+        vocabulary.spamPosteriors[id] = (spam + 1.0)/(nodal + 2.0);
+        vocabulary.hamPosteriors[id] = ((nodal - spam) + 1.0)/(nodal + 2.0);
+        vocabulary.logLikelihoodRatios[id] = Math.log(spam + 1.0) - Math.log((nodal - spam) + 1.0);
+    }
+
+    /**
+     *  A method updating the classifier online with a single labelled document; in time proportional to its tokens.
+     *  Counts and a priori probabilities are updated, and the a posteriori probabilities are recomputed only for the
+     *  words of the document; since those of every other word depend on its own counts alone. The information gain
+     *  values depend on the a priori probabilities as well; thus they are discarded, while any k-Best properties already
+     *  selected are kept until GetInformationGainConclusions() is invoked again. Any quantized model is discarded. The
+     *  classifier is held exclusively meanwhile; so that documents may be learned while others are being scored.
+     *  @param content The encoded contents of the document.
+     *  @param spam true if the document is spam.
+     */
+    public void LearnDocument(ByteBuffer content, final boolean spam) {
+        lock.writeLock().lock();
+        try {
+            Learn(content, spam);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     *  A method updating the classifier online with a single labelled document; once held exclusively.
+     */
+    private void Learn(ByteBuffer content, final boolean spam) {
+        quantized = null;
+        numOfTrainData++;
+        if (spam) spam_counter++;
+        TRAIN_DOCUMENTS.increment();
+        final CountTable table = NewCountTable();
+        tokenizer.tokenize(content, new TokenSink() {
+            public void accept(char[] buffer, int offset, int length, int hash) {
+                int id = CountToken(table, buffer, offset, length, hash, spam);
+                if (id < 0) return;
+                vocabulary.allocatePosteriors();
+                GetAPosterioriProbabilities(id);
+                if (vocabulary.pairOf(id) != id) GetAPosterioriProbabilities(vocabulary.pairOf(id));
+            }
+        });
+        appearences += table.appearences;
+        TRAIN_TOKENS.add(table.tokens);
+        GetAPrioriProbabilities();
+        GetAPrioriEntrophy();
+        a_posteriori_entrophy = information_gain = null;
+        VOCABULARY_SIZE.set(vocabulary.size());
+    }
+
+    /**
+     *  A method switching scoring to a quantized form of the log-likelihood ratios; in a single contiguous array of
+     *  floats or 16-bit fixed-point values, so that the ratios of large models stay cache resident. The accuracy loss
+     *  is bounded by the error bound of each document; and none with the exact fallback. The quantized model is
+     *  discarded whenever the a posteriori probabilities change. For further information also check the
+     *  documentation of the QuantizedModel class.
+     *  @param bits QuantizedModel.FLOAT or QuantizedModel.FIXED_16; or 0 for scoring with full precision again.
+     *  @param exactFallback true for rescoring with full precision the documents whose classification the
+     *  quantization might change.
+     *  @return The quantized model; or NULL for full precision.
+     */
+    public QuantizedModel Quantize(int bits, boolean exactFallback) {
+        quantized = bits == 0 ? null : new QuantizedModel(this, bits, exactFallback);
+        return quantized;
+    }
+
+    /**
+     *  A method scoring a document in log space; as the a priori log-odds of the spam category plus the sum of the
+     *  precomputed log-likelihood ratios of its words. Working with sums of logarithms, rather than products of
+     *  probabilities, long documents never underflow and no objects are allocated per token.
+     *  @param tokens The ids of the vocabulary inclusive tokens of the document.
+     *  @return The log-odds of the document being spam; non negative values meaning SPAM.
+     */
+    public double GetLogOdds(int[] tokens) {
+        lock.readLock().lock();
+        try {
+            QuantizedModel quantized = this.quantized;
+            if (quantized != null) return quantized.GetLogOdds(tokens);
+            double[] logLikelihoodRatios = vocabulary.logLikelihoodRatios;
+            double logOdds = a_priori_log_odds;
+            for(int word: tokens) logOdds += logLikelihoodRatios[word];
+            return logOdds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *  A method scoring a batch of documents in log space; holding the classifier and reading its log-likelihood
+     *  ratios once for the whole batch, rather than once per document. For further information also check the
+     *  documentation of the GetLogOdds() method.
+     *  @param documents The ids of the vocabulary inclusive tokens of every document.
+     *  @param count The number of documents of the batch.
+     *  @param logOdds The log-odds of every document being spam; filled in the order of the documents.
+     */
+    public void GetLogOdds(int[][] documents, int count, double[] logOdds) {
+        lock.readLock().lock();
+        try {
+            QuantizedModel quantized = this.quantized;
+            double[] logLikelihoodRatios = vocabulary.logLikelihoodRatios;
+            for(int document = 0; document < count; document++) {
+                if (quantized != null) {
+                    logOdds[document] = quantized.GetLogOdds(documents[document]);
+                    continue;
+                }
+                double sum = a_priori_log_odds;
+                for(int word: documents[document]) sum += logLikelihoodRatios[word];
+                logOdds[document] = sum;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *  A method scoring a document in log space; using only the k-Best features. For further information also check
+     *  the documentation of the GetLogOdds() method.
+     *  @param tokens The ids of the vocabulary inclusive tokens of the document.
+     *  @param k_best_properties The set of the ids of the k-Best properties.
+     *  @return The log-odds of the document being spam; non negative values meaning SPAM.
+     */
+    public double GetKBestLogOdds(int[] tokens, BitSet k_best_properties) {
+        lock.readLock().lock();
+        try {
+            QuantizedModel quantized = this.quantized;
+            if (quantized != null) return quantized.GetKBestLogOdds(tokens, k_best_properties);
+            double[] logLikelihoodRatios = vocabulary.logLikelihoodRatios;
+            double logOdds = a_priori_log_odds;
+            for(int word: tokens) {
+                if(k_best_properties.get(word)) logOdds += logLikelihoodRatios[word];
+            }
+            return logOdds;
+        } finally {
+            lock.readLock().unlock();
         }
     }
 
@@ -204,26 +619,34 @@ public class NaiveBayes {
      *  well as a posteriori probabilities for the appearence of each word in the vocabulary dataset used for training.
      *  The term "Naive" is being adopted because of the naive independence assumption between every pair of
      *  features. LaPlace estimations are included in the computations; to avoid zero values in probabilities due to
-     *  one property.
-     *  @param fileData The vocabulary inclusive tokens dynamic container.
+     *  one property. The products of probabilities are computed as sums of log-likelihood ratios; and each result
+     *  records the log-odds of the document being spam.
+     *  @param fileData The filename together with the ids of its vocabulary inclusive tokens.
+     */
+    public void GetClassificationConclusions(Vec2<String, int[]> fileData, char dataType) {
+        long start = System.nanoTime();
+        double logOdds = GetLogOdds(fileData.getYValue());
+        SCORE_LATENCY.record(System.nanoTime() - start);
+        SCORED_DOCUMENTS.increment();
+        RecordClassification(fileData.getTValue(), logOdds, dataType);
+    }
+
+    /**
+     *  A method recording the classification of a document, given its log-odds; into the counters, the results and
+     *  the accuracy checkpoints. Documents must be recorded in the order they are classified.
+     *  @param name The name of the document.
+     *  @param logOdds The log-odds of the document being spam; as returned by GetLogOdds().
+     *  @param dataType 'R' for test data or 'T' for train data.
      */
-    public void GetClassificationConclusions(Vec2<String, ArrayList<String>> fileData, char dataType) {
-        ArrayList<String> tokens = fileData.getYValue();
+    protected void RecordClassification(String name, double logOdds, char dataType) {
         if(results == null) results = new ArrayList<Vec2<String, Double>>();
         if(dataPlotPts == null) dataPlotPts = new ArrayList<Vec2<Integer, Double>>();
-        Vec2<Double, Double> probabilityProducts = new Vec2<Double, Double>(1.0 /* Spam initial probability */, 1.0 /* Ham initial probability */);
-        for(String word: tokens) {
-            probabilityProducts.setTValue(probabilityProducts.getTValue() * vocabulary.get(word).getYValue().getTValue());
-            probabilityProducts.setYValue(probabilityProducts.getYValue() * vocabulary.get(word).getYValue().getYValue());
-        }
-        probabilityProducts.setTValue(probabilityProducts.getTValue() * spam_probability);
-        probabilityProducts.setYValue(probabilityProducts.getYValue() * ham_probability);
-        if(probabilityProducts.getTValue() < probabilityProducts.getYValue()) {
-            results.add(new Vec2<String, Double>(fileData.getTValue() + " HAM", probabilityProducts.getYValue()));
-            if (!isSpam(fileData.getTValue())) TN++; /* True Negative */ else FN++; /* False Negative */
+        if(logOdds < 0) {
+            results.add(new Vec2<String, Double>(name + " HAM", logOdds));
+            if (!isSpam(name)) TN++; /* True Negative */ else FN++; /* False Negative */
         } else {
-            results.add(new Vec2<String, Double>(fileData.getTValue() + " SPAM", probabilityProducts.getTValue()));
-            if(isSpam(fileData.getTValue())) TP++; /* True Positive */ else FP++; /* False Positive */
+            results.add(new Vec2<String, Double>(name + " SPAM", logOdds));
+            if(isSpam(name)) TP++; /* True Positive */ else FP++; /* False Positive */
         }
         int current = currentClassifications;
         if (dataType == 'R') {
@@ -243,30 +666,112 @@ public class NaiveBayes {
      *  order to correctly estimate the document category. This a posteriori entrophy is used to compute the information
      *  gain for each word; as the expected decrease of this amount.
      *  @param k The data percentage to be used from the vocabulary dataset; as the k-best.
-     *  @return The k-Best properties; based on their pre-calculated information gain.
-     */
-    public HashSet<String> GetInformationGainConclusions(double k) {
-        Set<String> words = vocabulary.keySet();
-        Iterator<String> currentToken = words.iterator();
-        if(a_posteriori_entrophy == null) a_posteriori_entrophy = new ArrayList<Vec2<String,Vec2<Double, Double>>>();
-        while(currentToken.hasNext()) {
-            String word = currentToken.next();
-            Vec2<Double, Double> entrophyInfoGain = new Vec2<Double, Double>();
-            double spam_entrophy = spam_probability * vocabulary.get(word).getYValue().getTValue();
-            double ham_entrophy = ham_probability * vocabulary.get(word).getYValue().getYValue();
-            entrophyInfoGain.setTValue(-(spam_entrophy * log2(spam_entrophy) -(ham_entrophy * log2(ham_entrophy))));
-            double word_nodal_probability = vocabulary.get(word).getTValue().getTValue();
+     *  @return The set of the ids of the k-Best properties; based on their pre-calculated information gain, selected
+     *  with a bounded heap rather than a full sort.
+     */
+    public BitSet GetInformationGainConclusions(double k) {
+        long start = System.nanoTime();
+        BitSet k_best_properties;
+        lock.readLock().lock();
+        try { // documents learned meanwhile would change the counts and the ratios
+            k_best_properties = TopKSelector.select(GetInformationGain(), vocabulary.size(), GetKBestCount(k));
+        } finally {
+            lock.readLock().unlock();
+        }
+        FEATURE_SELECTION_PHASE.record(System.nanoTime() - start);
+        System.out.println("DIMENSIONALITY REDUCTION \nINITIAL: " + vocabulary.size() + " REMAINING: " + k_best_properties.cardinality() + "\n");
+        return k_best_properties;
+    }
+
+    /**
+     *  A method calculating the a posteriori entrophy, as well as the information gain, of every word in the vocabulary;
+     *  into the existent primitive arrays indexed by term ids. The words are split into contiguous ranges computed in
+     *  parallel, and the a posteriori entrophy of words of few appearences is looked up in a table computed once per
+     *  invocation from the same expression; so that the values are exactly the ones of computing every word on its own.
+     *  The arrays are published once complete; so that concurrent feature selections never read partial values.
+     *  For further information also check the documentation of the GetInformationGainConclusions() method.
+     *  @return The information gain of every word.
+     */
+    protected double[] GetInformationGain() {
+        final int size = vocabulary.size();
+        final double[] entrophy = new double[size], gain = new double[size];
+        final double[] entrophyTable = new double[ENTROPHY_TABLE_COUNTS * ENTROPHY_TABLE_COUNTS];
+        for(int nodal = 0; nodal < ENTROPHY_TABLE_COUNTS; nodal++) {
+            for(int spam = 0; spam <= nodal; spam++) {
+                entrophyTable[nodal * ENTROPHY_TABLE_COUNTS + spam] = GetAPosterioriEntrophy((spam + 1.0)/(nodal + 2.0), ((nodal - spam) + 1.0)/(nodal + 2.0));
+            }
+        }
+        int chunks = Math.min(Runtime.getRuntime().availableProcessors(), (size + INFORMATION_GAIN_CHUNK - 1) / INFORMATION_GAIN_CHUNK);
+        if (chunks <= 1) {
+            GetInformationGain(0, size, entrophyTable, entrophy, gain);
+            a_posteriori_entrophy = entrophy;
+            information_gain = gain;
+            return gain;
+        }
+        ArrayList<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for(int chunk = 0; chunk < chunks; chunk++) {
+            final int from = (int) ((long) size * chunk / chunks), to = (int) ((long) size * (chunk + 1) / chunks);
+            tasks.add(new Callable<Void>() {
+                public Void call() {
+                    GetInformationGain(from, to, entrophyTable, entrophy, gain);
+                    return null;
+                }
+            });
+        }
+        try {
+            for(Future<Void> task: ForkJoinPool.commonPool().invokeAll(tasks)) task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The information gain computation was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("The information gain computation failed", e.getCause());
+        }
+        a_posteriori_entrophy = entrophy;
+        information_gain = gain;
+        return gain;
+    }
+
+    /**
+     *  A method calculating the a posteriori entrophy, as well as the information gain, of a range of words.
+     */
+    private void GetInformationGain(int from, int to, double[] entrophyTable, double[] a_posteriori_entrophy, double[] information_gain) {
+        double[] spamPosteriors = vocabulary.spamPosteriors, hamPosteriors = vocabulary.hamPosteriors;
+        for(int word = from; word < to; word++) {
+            int nodal = vocabulary.countOf(word), spam = vocabulary.spamCountOf(word);
+            double spam_entrophy = spam_probability * spamPosteriors[word];
+            double ham_entrophy = ham_probability * hamPosteriors[word];
+            if (nodal < ENTROPHY_TABLE_COUNTS && spam >= 0 && spam <= nodal && spamPosteriors[word] == (spam + 1.0)/(nodal + 2.0)) {
+                a_posteriori_entrophy[word] = entrophyTable[nodal * ENTROPHY_TABLE_COUNTS + spam];
+            } else { // the a posteriori probabilities were not estimated from these counts
+                a_posteriori_entrophy[word] = GetAPosterioriEntrophy(spamPosteriors[word], hamPosteriors[word]);
+            }
+            double word_nodal_probability = nodal;
             word_nodal_probability /= appearences;
-            entrophyInfoGain.setYValue(a_priori_entrophy -(word_nodal_probability * spam_entrophy) -(word_nodal_probability * ham_entrophy));
-            a_posteriori_entrophy.add(new Vec2<String,Vec2<Double, Double>>(word, entrophyInfoGain));
+            information_gain[word] = a_priori_entrophy -(word_nodal_probability * spam_entrophy) -(word_nodal_probability * ham_entrophy);
         }
-        a_posteriori_entrophy.sort(new DefaultComparator());
-        HashSet<String> k_best_properties = new HashSet<String>();
+    }
+
+    /**
+     *  A method calculating the a posteriori entrophy of a word; given its a posteriori probabilities.
+     */
+    private double GetAPosterioriEntrophy(double spamPosterior, double hamPosterior) {
+        double spam_entrophy = spam_probability * spamPosterior;
+        double ham_entrophy = ham_probability * hamPosterior;
+        return -(spam_entrophy * log2(spam_entrophy) -(ham_entrophy * log2(ham_entrophy)));
+    }
+
+    /**
+     *  A method computing the number of k-Best properties for a given data percentage of the vocabulary dataset. The
+     *  properties left out are a percentage of the ones that appeared in the train documents; since properties without
+     *  appearences, such as empty buckets of feature hashing, have the highest information gain and no effect on scores.
+     *  @param k The data percentage to be used from the vocabulary dataset; as the k-best.
+     *  @return The number of k-Best properties.
+     */
+    public int GetKBestCount(double k) {
+        int size = vocabulary.size();
         Abs abs = new Abs();
-        Double start = (abs.value(1.0 - k) * a_posteriori_entrophy.size());
-        for(int i = start.intValue(); i < a_posteriori_entrophy.size(); i++) k_best_properties.add(a_posteriori_entrophy.get(i).getTValue());
-        System.out.println("DIMENSIONALITY REDUCTION \nINITIAL: " + vocabulary.size() + " REMAINING: " + k_best_properties.size() + "\n");
-        return k_best_properties;
+        Double start = (abs.value(1.0 - k) * vocabulary.appearedCount());
+        return size - start.intValue();
     }
 
     /**
@@ -275,28 +780,32 @@ public class NaiveBayes {
      *  as the a priori and a posteriori values of entrophy. The term "Naive" is being adopted because of the naive
      *  independence assumption between every pair of features. k-Best features are used for the computations,
      *  selected based on their pre-calculated information gain, and LaPlace estimations; to avoid zero values in
-     *  probabilities due to one property.
-     *  @param fileData The vocabulary inclusive tokens dynamic container.
+     *  probabilities due to one property. The computations take place in log space; as in GetClassificationConclusions().
+     *  @param fileData The filename together with the ids of its vocabulary inclusive tokens.
      */
-    public void GetKBestClassificationConclusions(Vec2<String, ArrayList<String>> fileData, HashSet<String> k_best_properties, char dataType) {
-        ArrayList<String> tokens = fileData.getYValue();
+    public void GetKBestClassificationConclusions(Vec2<String, int[]> fileData, BitSet k_best_properties, char dataType) {
+        long start = System.nanoTime();
+        double logOdds = GetKBestLogOdds(fileData.getYValue(), k_best_properties);
+        K_BEST_SCORE_LATENCY.record(System.nanoTime() - start);
+        RecordKBestClassification(fileData.getTValue(), logOdds, dataType);
+    }
+
+    /**
+     *  A method recording the k-Best classification of a document, given its log-odds; into the k-Best counters,
+     *  results and accuracy checkpoints. Documents must be recorded in the order they are classified.
+     *  @param name The name of the document.
+     *  @param logOdds The log-odds of the document being spam; as returned by GetKBestLogOdds().
+     *  @param dataType 'R' for test data or 'T' for train data.
+     */
+    protected void RecordKBestClassification(String name, double logOdds, char dataType) {
         if(k_best_results == null) k_best_results = new ArrayList<Vec2<String, Double>>();
         if(k_best_dataPlotPts == null) k_best_dataPlotPts = new ArrayList<Vec2<Integer, Double>>();
-        Vec2<Double, Double> probabilityProducts = new Vec2<Double, Double>(1.0 /* Spam initial probability */, 1.0 /* Ham initial probability */);
-        for(String word: tokens) {
-            if(k_best_properties.contains(word)) {
-                probabilityProducts.setTValue(probabilityProducts.getTValue() * vocabulary.get(word).getYValue().getTValue());
-                probabilityProducts.setYValue(probabilityProducts.getYValue() * vocabulary.get(word).getYValue().getYValue());
-            }
-        }
-        probabilityProducts.setTValue(probabilityProducts.getTValue() * spam_probability);
-        probabilityProducts.setYValue(probabilityProducts.getYValue() * ham_probability);
-        if(probabilityProducts.getTValue() < probabilityProducts.getYValue()) {
-            k_best_results.add(new Vec2<String, Double>(fileData.getTValue() + " HAM", probabilityProducts.getYValue()));
-            if (!isSpam(fileData.getTValue())) k_best_TN++; /* True Negative */ else k_best_FN++; /* False Negative */
+        if(logOdds < 0) {
+            k_best_results.add(new Vec2<String, Double>(name + " HAM", logOdds));
+            if (!isSpam(name)) k_best_TN++; /* True Negative */ else k_best_FN++; /* False Negative */
         } else {
-            k_best_results.add(new Vec2<String, Double>(fileData.getTValue() + " SPAM", probabilityProducts.getTValue()));
-            if(isSpam(fileData.getTValue())) k_best_TP++; /* True Positive */ else k_best_FP++; /* False Positive */
+            k_best_results.add(new Vec2<String, Double>(name + " SPAM", logOdds));
+            if(isSpam(name)) k_best_TP++; /* True Positive */ else k_best_FP++; /* False Positive */
         }
         int current = k_best_currentClassifications;
         if (dataType == 'R') {
@@ -309,6 +818,26 @@ public class NaiveBayes {
         k_best_currentClassifications++;
     }
 
+    /**
+     * A method exporting the trained state of the classifier into a binary snapshot file; after its a posteriori
+     * probabilities have been computed. For further information also check the documentation of the ModelSnapshot class.
+     * @param path The path of the snapshot to be written.
+     * @throws IOException If the snapshot could not be written.
+     */
+    public void SaveModel(String path) throws IOException {
+        ModelSnapshot.save(this, path);
+    }
+
+    /**
+     * A method loading a trained classifier from a binary snapshot file; without retraining.
+     * @param path The path of the snapshot to be read.
+     * @return The loaded classifier.
+     * @throws IOException If the snapshot could not be read or is corrupted.
+     */
+    public static NaiveBayes LoadModel(String path) throws IOException {
+        return ModelSnapshot.load(path);
+    }
+
     /**
      * A method creating a dynamic container of all filepaths contained in a given directory.
      * @param path The directory to find all contained filepaths.
@@ -0,0 +1,215 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ *  ParallelEvaluation.java
+ *  Evaluates a trained classifier on a corpus using several cores; with exactly the outcome of classifying its documents
+ *  one by one through GetClassificationConclusions() and GetKBestClassificationConclusions(). The documents are split
+ *  into contiguous chunks, each one read, tokenized and scored by a worker into a private confusion matrix; which also
+ *  captures its running counts at the accuracy checkpoints falling inside the chunk. The chunks are then merged in
+ *  document order, so that the counters, the results and the 10% accuracy checkpoints of the classifier are the same
+ *  regardless of the number of workers or of the order the chunks complete. The chunks of a sequential corpus are read
+ *  in order on the calling thread, and handed to the workers in memory; while at most two per worker are in flight.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class ParallelEvaluation {
+    /**
+     * The minimum number of documents per chunk.
+     */
+    private static final int MIN_CHUNK = 64;
+
+    /*
+     *  Local variables.
+     */
+    private NaiveBayes classifier;
+    private BitSet k_best_properties;
+    private char dataType;
+    private int workers;
+
+    /**
+     *  Default constructor override.
+     *  @param classifier The trained classifier; its classification counters, results and checkpoints are updated.
+     *  @param k_best_properties The ids of the k-Best properties.
+     *  @param dataType 'R' for test data or 'T' for train data; as in GetClassificationConclusions().
+     *  @param workers The number of evaluation workers.
+     */
+    public ParallelEvaluation(NaiveBayes classifier, BitSet k_best_properties, char dataType, int workers) {
+        this.classifier = classifier;
+        this.k_best_properties = k_best_properties;
+        this.dataType = dataType;
+        this.workers = workers;
+    }
+
+    /**
+     *  The outcome of a chunk of documents.
+     */
+    private static class Chunk {
+        ConfusionMatrix simple = new ConfusionMatrix(), k_best = new ConfusionMatrix();
+        ConfusionMatrix[] checkpoints; // the running simple counts within the chunk; at each checkpoint it contains
+        ArrayList<Vec2<String, Double>> results = new ArrayList<Vec2<String, Double>>();
+        ArrayList<Vec2<String, Double>> k_best_results = new ArrayList<Vec2<String, Double>>();
+    }
+
+    /**
+     *  A method evaluating every document of a corpus; as the classifier would, classifying them in corpus order.
+     *  @param corpus The corpus of the documents.
+     */
+    public void Evaluate(final CorpusSource corpus) {
+        final int documents = corpus.size();
+        int total = dataType == 'R' ? classifier.numOfTestData : classifier.numOfTrainData;
+        int[] simpleCheckpoints = Checkpoints(classifier.currentClassifications, classifier.dataPlotPts, documents, total);
+        int[] k_best_checkpoints = Checkpoints(classifier.k_best_currentClassifications, classifier.k_best_dataPlotPts, documents, total);
+        final int[] positions = Union(simpleCheckpoints, k_best_checkpoints);
+
+        boolean sequential = !corpus.isRandomAccess();
+        int chunkSize = sequential ? MIN_CHUNK : Math.max(MIN_CHUNK, (documents + 8 * workers - 1) / (8 * workers));
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        ArrayList<Future<Chunk>> chunks = new ArrayList<Future<Chunk>>();
+        try {
+            for(int start = 0; start < documents; start += chunkSize) {
+                final int from = start, to = Math.min(start + chunkSize, documents);
+                if (sequential && chunks.size() >= 2 * workers) chunks.get(chunks.size() - 2 * workers).get();
+                final CorpusSource source = sequential ? new CorpusChunk(corpus, from, to) : corpus;
+                chunks.add(pool.submit(new Callable<Chunk>() {
+                    public Chunk call() {
+                        return Score(source, from, to, positions);
+                    }
+                }));
+            }
+            Merge(chunks, positions, simpleCheckpoints, k_best_checkpoints, documents);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Parallel evaluation was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Parallel evaluation failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     *  A method locating the documents after which a classification method adds an accuracy checkpoint; following its
+     *  rule exactly, given the classifications already performed.
+     *  @return The indices of the documents, relative to the corpus.
+     */
+    private static int[] Checkpoints(int current, ArrayList<Vec2<Integer, Double>> plotPts, int documents, int total) {
+        int size = plotPts == null ? 0 : plotPts.size(), count = 0;
+        int[] checkpoints = new int[16];
+        for(int document = 0; document < documents; document++, current++) {
+            if (current == ((size + 1) * total / 10) - 1 || current == total - 1) {
+                if (count == checkpoints.length) checkpoints = Arrays.copyOf(checkpoints, count * 2);
+                checkpoints[count++] = document;
+                size++;
+            }
+        }
+        return Arrays.copyOf(checkpoints, count);
+    }
+
+    /**
+     *  A method merging two sorted arrays of indices; without duplicates.
+     */
+    private static int[] Union(int[] a, int[] b) {
+        int[] union = new int[a.length + b.length];
+        int i = 0, j = 0, size = 0;
+        while (i < a.length || j < b.length) {
+            int next = j == b.length || (i < a.length && a[i] <= b[j]) ? a[i] : b[j];
+            if (i < a.length && a[i] == next) i++;
+            if (j < b.length && b[j] == next) j++;
+            union[size++] = next;
+        }
+        return Arrays.copyOf(union, size);
+    }
+
+    /**
+     *  A method reading, tokenizing and scoring a chunk of documents; without touching any shared state of the
+     *  classifier besides its metrics.
+     */
+    private Chunk Score(CorpusSource corpus, int from, int to, int[] positions) {
+        Chunk chunk = new Chunk();
+        int first = Arrays.binarySearch(positions, from);
+        if (first < 0) first = -first - 1;
+        int last = Arrays.binarySearch(positions, to);
+        if (last < 0) last = -last - 1;
+        chunk.checkpoints = new ConfusionMatrix[last - first];
+        for(int document = from, checkpoint = first; document < to; document++) {
+            String name = corpus.getName(document);
+            ByteBuffer content;
+            try {
+                long start = System.nanoTime();
+                content = corpus.getContent(document);
+                TestLogic.READ_LATENCY.record(System.nanoTime() - start);
+            } catch (IOException e) {
+                System.err.println("The system could not find the file specified");
+                e.printStackTrace();
+                content = ByteBuffer.allocate(0);
+            }
+            int[] tokens = classifier.ReadTestDocument(name, content).getYValue();
+            boolean spam = classifier.isSpam(name);
+            long start = System.nanoTime();
+            double logOdds = classifier.GetLogOdds(tokens);
+            NaiveBayes.SCORE_LATENCY.record(System.nanoTime() - start);
+            NaiveBayes.SCORED_DOCUMENTS.increment();
+            start = System.nanoTime();
+            double k_best_logOdds = classifier.GetKBestLogOdds(tokens, k_best_properties);
+            NaiveBayes.K_BEST_SCORE_LATENCY.record(System.nanoTime() - start);
+            chunk.simple.add(logOdds >= 0, spam);
+            chunk.k_best.add(k_best_logOdds >= 0, spam);
+            chunk.results.add(new Vec2<String, Double>(name + (logOdds < 0 ? " HAM" : " SPAM"), logOdds));
+            chunk.k_best_results.add(new Vec2<String, Double>(name + (k_best_logOdds < 0 ? " HAM" : " SPAM"), k_best_logOdds));
+            if (checkpoint < positions.length && positions[checkpoint] == document) {
+                ConfusionMatrix running = new ConfusionMatrix();
+                running.add(chunk.simple);
+                chunk.checkpoints[checkpoint++ - first] = running;
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     *  A method merging the chunks into the classifier in document order.
+     */
+    private void Merge(ArrayList<Future<Chunk>> chunks, int[] positions, int[] simpleCheckpoints, int[] k_best_checkpoints, int documents)
+            throws InterruptedException, ExecutionException {
+        NaiveBayes nb = classifier;
+        if (nb.results == null) nb.results = new ArrayList<Vec2<String, Double>>();
+        if (nb.k_best_results == null) nb.k_best_results = new ArrayList<Vec2<String, Double>>();
+        if (nb.dataPlotPts == null) nb.dataPlotPts = new ArrayList<Vec2<Integer, Double>>();
+        if (nb.k_best_dataPlotPts == null) nb.k_best_dataPlotPts = new ArrayList<Vec2<Integer, Double>>();
+        ConfusionMatrix preceding = new ConfusionMatrix(); // the simple counts before the current chunk
+        preceding.TP = nb.TP; preceding.TN = nb.TN; preceding.FP = nb.FP; preceding.FN = nb.FN;
+        int checkpoint = 0, simple = 0, k_best = 0;
+        for(Future<Chunk> future: chunks) {
+            Chunk chunk = future.get();
+            for(ConfusionMatrix within: chunk.checkpoints) {
+                int position = positions[checkpoint++];
+                ConfusionMatrix running = new ConfusionMatrix();
+                running.add(preceding);
+                running.add(within);
+                double accuracy = (running.TN + running.TP) / (double) (running.TN + running.FN + running.TP + running.FP);
+                if (simple < simpleCheckpoints.length && simpleCheckpoints[simple] == position) {
+                    nb.dataPlotPts.add(new Vec2<Integer, Double>((nb.dataPlotPts.size() + 1) * 10, accuracy /* Accuracy */));
+                    simple++;
+                }
+                if (k_best < k_best_checkpoints.length && k_best_checkpoints[k_best] == position) { // the simple accuracy; as in GetKBestClassificationConclusions()
+                    nb.k_best_dataPlotPts.add(new Vec2<Integer, Double>((nb.k_best_dataPlotPts.size() + 1) * 10, accuracy /* Accuracy */));
+                    k_best++;
+                }
+            }
+            preceding.add(chunk.simple);
+            nb.TP += chunk.simple.TP; nb.TN += chunk.simple.TN; nb.FP += chunk.simple.FP; nb.FN += chunk.simple.FN;
+            nb.k_best_TP += chunk.k_best.TP; nb.k_best_TN += chunk.k_best.TN; nb.k_best_FP += chunk.k_best.FP; nb.k_best_FN += chunk.k_best.FN;
+            nb.results.addAll(chunk.results);
+            nb.k_best_results.addAll(chunk.k_best_results);
+        }
+        nb.currentClassifications += documents;
+        nb.k_best_currentClassifications += documents;
+    }
+}
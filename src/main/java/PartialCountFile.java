@@ -0,0 +1,265 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ *  PartialCountFile.java
+ *  Persists the partial count table of a training shard into a compact file of term records sorted by term; so that
+ *  shards trained by separate processes may be merged into a single model by a k-way merge, reading every file once
+ *  and sequentially. A partial count file consists of a header (magic number, format version, documents, spam
+ *  documents, appearences and records), one record per term, and a trailing CRC32 checksum of all preceding bytes.
+ *  Each record holds the term front-coded against the previous one, as the length of their common prefix and the
+ *  remaining UTF-16 code units, followed by the id of the term in its shard, its appearences and its spam appearences;
+ *  every number is a 7-bit variable-length integer. The shard ids keep the order in which the terms first occurred;
+ *  so that the merged vocabulary assigns exactly the ids, and thus yields exactly the results, of merging the shards
+ *  in memory, or of reading their documents sequentially.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class PartialCountFile {
+    /**
+     * The magic number of partial count files; "NBPC" in ASCII.
+     */
+    public static final int MAGIC = 0x4E425043;
+
+    /**
+     * The format version of partial count files.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     *  A method writing the partial count table of a shard; sorted by term.
+     *  @param table The partial count table; of a term dictionary of distinct terms.
+     *  @param documents The number of train documents read into the table.
+     *  @param path The path of the partial count file to be written.
+     *  @throws IOException If the file could not be written.
+     */
+    public static void write(CountTable table, int documents, String path) throws IOException {
+        final TermDictionary partial = table.vocabulary;
+        if (!partial.hasTerms()) throw new IllegalArgumentException("Hashed term dictionaries have no terms to be merged");
+        int size = partial.size();
+        Integer[] order = new Integer[size];
+        for(int id = 0; id < size; id++) order[id] = id;
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return partial.terms[a].compareTo(partial.terms[b]);
+            }
+        });
+        CRC32 checksum = new CRC32();
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(new FileOutputStream(path), checksum), 1 << 16));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(documents);
+            out.writeInt(table.spam_counter);
+            out.writeInt(table.appearences);
+            out.writeInt(size);
+            String previous = "";
+            for(int id: order) {
+                String term = partial.terms[id];
+                int common = 0, limit = Math.min(previous.length(), term.length());
+                while (common < limit && previous.charAt(common) == term.charAt(common)) common++;
+                writeVarint(out, common);
+                writeVarint(out, term.length() - common);
+                for(int i = common; i < term.length(); i++) writeVarint(out, term.charAt(i));
+                writeVarint(out, id);
+                writeVarint(out, partial.counts[id]);
+                writeVarint(out, partial.spamCounts[id]);
+                previous = term;
+            }
+            out.flush();
+            out.writeLong(checksum.getValue());
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     *  A method writing a non negative number as a 7-bit variable-length integer.
+     */
+    private static void writeVarint(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     *  A method reading a 7-bit variable-length integer.
+     */
+    private static int readVarint(InputStream in) throws IOException {
+        int value = 0;
+        for(int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException("Truncated partial count file");
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+    }
+
+    /**
+     *  A sequential reader of the records of a partial count file.
+     */
+    private static class Reader {
+        final int shard;
+        final CRC32 checksum = new CRC32();
+        final DataInputStream in;
+        final String path;
+        int documents, spam_counter, appearences, remaining;
+        char[] term = new char[64];
+        int length, id, count, spamCount;
+
+        Reader(String path, int shard) throws IOException {
+            this.path = path;
+            this.shard = shard;
+            in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(new FileInputStream(path), 1 << 16), checksum));
+            if (in.readInt() != MAGIC) throw new IOException("Not a partial count file: " + path);
+            if (in.readInt() != VERSION) throw new IOException("Unsupported partial count file version: " + path);
+            documents = in.readInt();
+            spam_counter = in.readInt();
+            appearences = in.readInt();
+            remaining = in.readInt();
+            if (remaining == 0) verify();
+        }
+
+        /**
+         *  A method advancing to the next record; verifying the checksum after the last one.
+         *  @return false if there are no more records.
+         */
+        boolean next() throws IOException {
+            if (remaining == 0) return false;
+            remaining--;
+            int common = readVarint(in), suffix = readVarint(in);
+            if (common > length) throw new IOException("Malformed partial count file: " + path);
+            length = common + suffix;
+            if (length > term.length) term = Arrays.copyOf(term, Math.max(length, term.length * 2));
+            for(int i = common; i < length; i++) term[i] = (char) readVarint(in);
+            id = readVarint(in);
+            count = readVarint(in);
+            spamCount = readVarint(in);
+            if (remaining == 0) verify();
+            return true;
+        }
+
+        /**
+         *  A method verifying the trailing checksum; after the last record.
+         */
+        void verify() throws IOException {
+            long expected = checksum.getValue();
+            if (in.readLong() != expected) throw new IOException("Corrupted partial count file: " + path);
+        }
+
+        /**
+         *  A method comparing the current terms of two readers; as String.compareTo() does, ties ordered by shard.
+         */
+        int compareTo(Reader other) {
+            int limit = Math.min(length, other.length);
+            for(int i = 0; i < limit; i++) {
+                if (term[i] != other.term[i]) return term[i] - other.term[i];
+            }
+            if (length != other.length) return length - other.length;
+            return shard - other.shard;
+        }
+
+        boolean sameTerm(Reader other) {
+            if (length != other.length) return false;
+            for(int i = 0; i < length; i++) {
+                if (term[i] != other.term[i]) return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     *  A method merging the partial count files of the shards into the vocabulary of a classifier; through a k-way
+     *  merge of their sorted records. The category counters and the appearences are accumulated, and terms are given
+     *  vocabulary ids, exactly as MergeCountTable() would for the partial count tables of the shards in the given order.
+     *  The number of train documents is left to the caller.
+     *  @param model The classifier; whose vocabulary is a term dictionary of distinct terms.
+     *  @param paths The paths of the partial count files; in shard order.
+     *  @return The number of train documents of all the shards.
+     *  @throws IOException If a file could not be read, is malformed or its checksum does not match.
+     */
+    public static int merge(NaiveBayes model, List<String> paths) throws IOException {
+        if (model.vocabulary instanceof HashedTermDictionary) throw new IllegalArgumentException("Hashed term dictionaries have no terms to be merged");
+        PriorityQueue<Reader> heap = new PriorityQueue<Reader>(Math.max(1, paths.size()), new Comparator<Reader>() {
+            public int compare(Reader a, Reader b) {
+                return a.compareTo(b);
+            }
+        });
+        Reader[] readers = new Reader[paths.size()];
+        int documents = 0, records = 0;
+        try {
+            for(int shard = 0; shard < readers.length; shard++) {
+                readers[shard] = new Reader(paths.get(shard), shard);
+                documents += readers[shard].documents;
+                model.spam_counter += readers[shard].spam_counter;
+                model.appearences += readers[shard].appearences;
+                records += readers[shard].remaining;
+                if (readers[shard].next()) heap.add(readers[shard]);
+            }
+            // the merged terms, with the shard and shard id of their first occurrence
+            String[] terms = new String[records];
+            long[] firstOccurrences = new long[records];
+            int[] counts = new int[records], spamCounts = new int[records], shards = new int[records];
+            int merged = 0;
+            while (!heap.isEmpty()) {
+                Reader first = heap.poll();
+                terms[merged] = new String(first.term, 0, first.length);
+                firstOccurrences[merged] = ((long) first.shard << 32) | first.id;
+                Accumulate(first, merged, counts, spamCounts, shards);
+                while (!heap.isEmpty() && heap.peek().sameTerm(first)) {
+                    Reader other = heap.poll();
+                    Accumulate(other, merged, counts, spamCounts, shards);
+                    if (other.next()) heap.add(other);
+                }
+                if (first.next()) heap.add(first);
+                merged++;
+            }
+            Integer[] order = new Integer[merged];
+            for(int i = 0; i < merged; i++) order[i] = i;
+            final long[] occurrences = firstOccurrences;
+            Arrays.sort(order, new Comparator<Integer>() {
+                public int compare(Integer a, Integer b) {
+                    return Long.compare(occurrences[a], occurrences[b]);
+                }
+            });
+            TermDictionary vocabulary = model.vocabulary;
+            for(int i: order) {
+                int id = vocabulary.add(terms[i]);
+                // the first appearence in the vocabulary is not counted; but the first one of every later shard is
+                if (shards[i] > 0) model.appearences += vocabulary.counts[id] > 0 ? shards[i] : shards[i] - 1;
+                vocabulary.counts[id] += counts[i];
+                vocabulary.spamCounts[id] += spamCounts[i];
+            }
+        } finally {
+            for(Reader reader: readers) {
+                if (reader != null) reader.in.close();
+            }
+        }
+        return documents;
+    }
+
+    /**
+     *  A method adding the current record of a reader to a merged term.
+     */
+    private static void Accumulate(Reader reader, int merged, int[] counts, int[] spamCounts, int[] shards) {
+        counts[merged] += reader.count;
+        spamCounts[merged] += reader.spamCount;
+        if (reader.count > 0) shards[merged]++;
+    }
+}
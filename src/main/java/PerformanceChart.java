@@ -0,0 +1,238 @@
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Locale;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.ChartUtilities;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.plot.CategoryPlot;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.renderer.category.LineAndShapeRenderer;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.category.DefaultCategoryDataset;
+
+/**
+ * PerformanceChart.java
+ * Creates the line chart of the Naive Bayes performance shown by the Graphics class; and renders it to PNG and SVG
+ * files without a display, for batch runs. Nothing here touches a window or the event thread; so that with the
+ * java.awt.headless system property set, charts are rendered without initializing a display at all. The PNG file is
+ * rendered by JFreeChart itself; while, since JFreeChart has no SVG export of its own, the SVG file draws the same
+ * chart, title, axes, series and legend, directly from the datapoints.
+ * @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class PerformanceChart {
+    /**
+     * The size of the rendered charts; as the one of the Graphics window.
+     */
+    public static final int WIDTH = 500, HEIGHT = 270;
+
+    /**
+     * The row keys of the dataset.
+     */
+    private static final String TRAIN_SERIES = "Train Data Accuracy", TEST_SERIES = "Test Data Accuracy";
+
+    /**
+     * Creates a sample dataset.
+     *
+     * @param sampleTrainData Train progress datapoints.
+     * @param sampleRealData Test progress datapoints.
+     * @return The dataset.
+     */
+    public static CategoryDataset createDataset(ArrayList<Vec2<Integer, Double>> sampleTrainData, ArrayList<Vec2<Integer, Double>> sampleRealData) {
+        // row keys...
+        final String series1 = TRAIN_SERIES;
+        final String series2 = TEST_SERIES;
+
+        // create the dataset...
+        final DefaultCategoryDataset dataset = new DefaultCategoryDataset();
+        for(Vec2<Integer, Double> data: sampleTrainData) {
+            dataset.addValue(data.getYValue(), series1, data.getTValue());
+        }
+        for(Vec2<Integer, Double> data: sampleRealData) {
+            dataset.addValue(data.getYValue(), series2, data.getTValue());
+        }
+
+        return dataset;
+    }
+
+    /**
+     * Creates a sample chart.
+     *
+     * @param naiveBayesType the Naive Bayes type for the statistics.
+     * @param dataset a dataset.
+     * @return The chart.
+     */
+    public static JFreeChart createChart(String naiveBayesType, final CategoryDataset dataset) {
+        // create the chart...
+        final JFreeChart chart = ChartFactory.createLineChart(
+                naiveBayesType + " Naive Bayes Performance",       // chart title
+                "Percentage of Data Used (%)",                    // domain axis label
+                "Accuracy Value",                   // range axis label
+                dataset,                   // data
+                PlotOrientation.VERTICAL,  // orientation
+                true,                      // include legend
+                true,                      // tooltips
+                false                      // urls
+        );
+
+        // NOW DO SOME OPTIONAL CUSTOMISATION OF THE CHART...
+//        final StandardLegend legend = (StandardLegend) chart.getLegend();
+        //      legend.setDisplaySeriesShapes(true);
+        //    legend.setShapeScaleX(1.5);
+        //  legend.setShapeScaleY(1.5);
+        //legend.setDisplaySeriesLines(true);
+
+        chart.setBackgroundPaint(Color.white);
+
+        final CategoryPlot plot = (CategoryPlot) chart.getPlot();
+        plot.setBackgroundPaint(Color.lightGray);
+        plot.setRangeGridlinePaint(Color.white);
+
+        // customise the range axis...
+        final NumberAxis rangeAxis = (NumberAxis) plot.getRangeAxis();
+        rangeAxis.setStandardTickUnits(NumberAxis.createIntegerTickUnits());
+        rangeAxis.setAutoRangeIncludesZero(true);
+
+        // ****************************************************************************
+        // * JFREECHART DEVELOPER GUIDE                                               *
+        // * The JFreeChart Developer Guide, written by David Gilbert, is available   *
+        // * to purchase from Object Refinery Limited:                                *
+        // *                                                                          *
+        // * http://www.object-refinery.com/jfreechart/guide.html                     *
+        // *                                                                          *
+        // * Sales are used to provide funding for the JFreeChart project - please    *
+        // * support us so that we can continue developing free software.             *
+        // ****************************************************************************
+
+        // customise the renderer...
+        final LineAndShapeRenderer renderer = (LineAndShapeRenderer) plot.getRenderer();
+//        renderer.setDrawShapes(true);
+
+        renderer.setSeriesStroke(
+                0, new BasicStroke(
+                        2.0f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND,
+                        1.0f, new float[]{10.0f, 6.0f}, 0.0f
+                )
+        );
+        renderer.setSeriesStroke(
+                1, new BasicStroke(
+                        2.0f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND,
+                        1.0f, new float[]{6.0f, 6.0f}, 0.0f
+                )
+        );
+        renderer.setSeriesStroke(
+                2, new BasicStroke(
+                        2.0f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND,
+                        1.0f, new float[]{2.0f, 6.0f}, 0.0f
+                )
+        );
+        // OPTIONAL CUSTOMISATION COMPLETED.
+
+        return chart;
+    }
+
+    /**
+     * Renders the chart of the datapoints to a PNG file.
+     *
+     * @param file the PNG file to be written.
+     * @param type the Naive Bayes type for the statistics.
+     * @param sampleTrainData Train progress datapoints.
+     * @param sampleRealData Test progress datapoints.
+     * @throws IOException If the file could not be written.
+     */
+    public static void WritePNG(File file, String type, ArrayList<Vec2<Integer, Double>> sampleTrainData, ArrayList<Vec2<Integer, Double>> sampleRealData) throws IOException {
+        ChartUtilities.saveChartAsPNG(file, createChart(type, createDataset(sampleTrainData, sampleRealData)), WIDTH, HEIGHT);
+    }
+
+    /**
+     * Renders the chart of the datapoints to an SVG file; with the layout, paints and strokes of createChart().
+     *
+     * @param file the SVG file to be written.
+     * @param type the Naive Bayes type for the statistics.
+     * @param sampleTrainData Train progress datapoints.
+     * @param sampleRealData Test progress datapoints.
+     * @throws IOException If the file could not be written.
+     */
+    public static void WriteSVG(File file, String type, ArrayList<Vec2<Integer, Double>> sampleTrainData, ArrayList<Vec2<Integer, Double>> sampleRealData) throws IOException {
+        // the categories, in order of first appearence, and the range of the values
+        ArrayList<Integer> categories = new ArrayList<Integer>();
+        double upper = 0.0;
+        for(ArrayList<Vec2<Integer, Double>> series: Series(sampleTrainData, sampleRealData)) {
+            for(Vec2<Integer, Double> data: series) {
+                if (!categories.contains(data.getTValue())) categories.add(data.getTValue());
+                upper = Math.max(upper, data.getYValue());
+            }
+        }
+        upper = upper > 0 ? upper * 1.05 : 1.0; // the range includes zero, with the upper margin of the range axis
+        final int left = 40, right = WIDTH - 10, top = 34, bottom = HEIGHT - 64;
+        StringBuilder svg = new StringBuilder();
+        svg.append(String.format(Locale.ROOT, "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%d\" height=\"%d\" font-family=\"SansSerif\">%n", WIDTH, HEIGHT));
+        svg.append(String.format(Locale.ROOT, "<rect width=\"%d\" height=\"%d\" fill=\"white\"/>%n", WIDTH, HEIGHT));
+        svg.append(String.format(Locale.ROOT, "<text x=\"%d\" y=\"22\" font-size=\"18\" font-weight=\"bold\" text-anchor=\"middle\">%s</text>%n",
+                WIDTH / 2, Escape(type + " Naive Bayes Performance")));
+        svg.append(String.format(Locale.ROOT, "<rect x=\"%d\" y=\"%d\" width=\"%d\" height=\"%d\" fill=\"#c0c0c0\"/>%n", left, top, right - left, bottom - top));
+        // the range axis; with integer tick units
+        for(int tick = 0; tick <= upper; tick++) {
+            double y = bottom - (bottom - top) * tick / upper;
+            svg.append(String.format(Locale.ROOT, "<line x1=\"%d\" y1=\"%.1f\" x2=\"%d\" y2=\"%.1f\" stroke=\"white\" stroke-width=\"0.5\"/>%n", left, y, right, y));
+            svg.append(String.format(Locale.ROOT, "<text x=\"%d\" y=\"%.1f\" font-size=\"10\" text-anchor=\"end\">%d</text>%n", left - 4, y + 3, tick));
+        }
+        svg.append(String.format(Locale.ROOT, "<text transform=\"translate(12,%d) rotate(-90)\" font-size=\"12\" text-anchor=\"middle\">Accuracy Value</text>%n", (top + bottom) / 2));
+        // the category axis; with the categories centered in equal intervals
+        double interval = (right - left) / (double) Math.max(1, categories.size());
+        for(int category = 0; category < categories.size(); category++) {
+            svg.append(String.format(Locale.ROOT, "<text x=\"%.1f\" y=\"%d\" font-size=\"10\" text-anchor=\"middle\">%d</text>%n",
+                    left + interval * (category + 0.5), bottom + 12, categories.get(category)));
+        }
+        svg.append(String.format(Locale.ROOT, "<text x=\"%d\" y=\"%d\" font-size=\"12\" text-anchor=\"middle\">Percentage of Data Used (%%)</text>%n", (left + right) / 2, bottom + 28));
+        // the series and the legend; with the default paints of JFreeChart and the strokes of createChart()
+        String[] names = {TRAIN_SERIES, TEST_SERIES}, paints = {"#ff5555", "#5555ff"}, dashes = {"10,6", "6,6"};
+        ArrayList<ArrayList<Vec2<Integer, Double>>> series = Series(sampleTrainData, sampleRealData);
+        for(int s = 0; s < names.length; s++) {
+            StringBuilder points = new StringBuilder();
+            for(Vec2<Integer, Double> data: series.get(s)) {
+                double x = left + interval * (categories.indexOf(data.getTValue()) + 0.5);
+                double y = bottom - (bottom - top) * data.getYValue() / upper;
+                points.append(String.format(Locale.ROOT, "%.1f,%.1f ", x, y));
+            }
+            svg.append(String.format(Locale.ROOT, "<polyline points=\"%s\" fill=\"none\" stroke=\"%s\" stroke-width=\"2\" stroke-dasharray=\"%s\" stroke-linecap=\"round\" stroke-linejoin=\"round\"/>%n",
+                    points.toString().trim(), paints[s], dashes[s]));
+            int x = WIDTH / 2 - 120 + 130 * s;
+            svg.append(String.format(Locale.ROOT, "<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" stroke=\"%s\" stroke-width=\"2\" stroke-dasharray=\"%s\"/>%n",
+                    x, HEIGHT - 14, x + 16, HEIGHT - 14, paints[s], dashes[s]));
+            svg.append(String.format(Locale.ROOT, "<text x=\"%d\" y=\"%d\" font-size=\"10\">%s</text>%n", x + 20, HEIGHT - 10, Escape(names[s])));
+        }
+        svg.append("</svg>\n");
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+        try {
+            out.write(svg.toString());
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Lists the series of the datapoints; skipping missing ones.
+     */
+    private static ArrayList<ArrayList<Vec2<Integer, Double>>> Series(ArrayList<Vec2<Integer, Double>> sampleTrainData, ArrayList<Vec2<Integer, Double>> sampleRealData) {
+        ArrayList<ArrayList<Vec2<Integer, Double>>> series = new ArrayList<ArrayList<Vec2<Integer, Double>>>();
+        series.add(sampleTrainData == null ? new ArrayList<Vec2<Integer, Double>>() : sampleTrainData);
+        series.add(sampleRealData == null ? new ArrayList<Vec2<Integer, Double>>() : sampleRealData);
+        return series;
+    }
+
+    /**
+     * Escapes the XML markup characters of a text.
+     */
+    static String Escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
@@ -0,0 +1,172 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ *  PerformanceReport.java
+ *  A machine-readable report of a Naive Bayes test; for batch runs, where the results are collected by other tools
+ *  rather than read off the standard output or the Graphics windows. For every model, the simple and the k-Best one,
+ *  it holds the confusion matrix on the test dataset and the accuracy datapoints on the train and the test dataset;
+ *  together with a snapshot of the metrics registry. The report is written as a JSON document, as well as two CSV
+ *  files; one row per model with its confusion matrix and statistics, and one row per datapoint.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class PerformanceReport {
+    /*
+     *  Local variables.
+     */
+    private String dataset;
+    private ArrayList<String> models = new ArrayList<String>();
+    private ArrayList<ConfusionMatrix> results = new ArrayList<ConfusionMatrix>();
+    private ArrayList<ArrayList<Vec2<Integer, Double>>> sampleTrainData = new ArrayList<ArrayList<Vec2<Integer, Double>>>();
+    private ArrayList<ArrayList<Vec2<Integer, Double>>> sampleRealData = new ArrayList<ArrayList<Vec2<Integer, Double>>>();
+
+    /**
+     *  Default constructor override.
+     *  @param dataset The Naive Bayes dataset for the statistics.
+     */
+    public PerformanceReport(String dataset) {
+        this.dataset = dataset;
+    }
+
+    /**
+     *  A method adding the results of a model.
+     *  @param model The name of the model.
+     *  @param matrix The confusion matrix of the model on the test dataset.
+     *  @param sampleTrainData The train data statistics; or NULL.
+     *  @param sampleRealData The test data statistics; or NULL.
+     */
+    public void add(String model, ConfusionMatrix matrix, ArrayList<Vec2<Integer, Double>> sampleTrainData, ArrayList<Vec2<Integer, Double>> sampleRealData) {
+        models.add(model);
+        results.add(matrix);
+        this.sampleTrainData.add(sampleTrainData == null ? new ArrayList<Vec2<Integer, Double>>() : sampleTrainData);
+        this.sampleRealData.add(sampleRealData == null ? new ArrayList<Vec2<Integer, Double>>() : sampleRealData);
+    }
+
+    /**
+     *  A method writing the report as a JSON document.
+     *  @param file The JSON file to be written.
+     *  @throws IOException If the file could not be written.
+     */
+    public void WriteJSON(File file) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"dataset\": ").append(Quote(dataset)).append(",\n  \"models\": [");
+        for(int model = 0; model < models.size(); model++) {
+            ConfusionMatrix matrix = results.get(model);
+            json.append(model == 0 ? "\n" : ",\n");
+            json.append("    {\n      \"name\": ").append(Quote(models.get(model))).append(",\n");
+            json.append("      \"TP\": ").append(matrix.TP).append(", \"TN\": ").append(matrix.TN);
+            json.append(", \"FP\": ").append(matrix.FP).append(", \"FN\": ").append(matrix.FN).append(",\n");
+            json.append("      \"accuracy\": ").append(Number(matrix.getAccuracy()));
+            json.append(", \"precision\": ").append(Number(matrix.getPrecision()));
+            json.append(", \"recall\": ").append(Number(matrix.getRecall()));
+            json.append(", \"F1\": ").append(Number(matrix.getF1())).append(",\n");
+            json.append("      \"train\": ").append(Points(sampleTrainData.get(model))).append(",\n");
+            json.append("      \"test\": ").append(Points(sampleRealData.get(model))).append("\n    }");
+        }
+        json.append("\n  ],\n  \"metrics\": {");
+        boolean first = true;
+        for(String line: MetricsRegistry.DEFAULT.toString().split("\n")) {
+            int separator = line.indexOf('=');
+            if (separator < 0) continue;
+            json.append(first ? "\n" : ",\n").append("    ").append(Quote(line.substring(0, separator))).append(": ");
+            try {
+                json.append(Number(Double.parseDouble(line.substring(separator + 1))));
+            } catch (NumberFormatException e) {
+                json.append(Quote(line.substring(separator + 1)));
+            }
+            first = false;
+        }
+        json.append("\n  }\n}\n");
+        Write(file, json.toString());
+    }
+
+    /**
+     *  A method writing the report as two CSV files; the results of the models, and their datapoints.
+     *  @param results The CSV file of the results to be written.
+     *  @param datapoints The CSV file of the datapoints to be written.
+     *  @throws IOException If a file could not be written.
+     */
+    public void WriteCSV(File results, File datapoints) throws IOException {
+        StringBuilder csv = new StringBuilder("dataset,model,TP,TN,FP,FN,accuracy,precision,recall,F1\n");
+        for(int model = 0; model < models.size(); model++) {
+            ConfusionMatrix matrix = this.results.get(model);
+            csv.append(Field(dataset)).append(',').append(Field(models.get(model))).append(',');
+            csv.append(matrix.TP).append(',').append(matrix.TN).append(',').append(matrix.FP).append(',').append(matrix.FN).append(',');
+            csv.append(matrix.getAccuracy()).append(',').append(matrix.getPrecision()).append(',');
+            csv.append(matrix.getRecall()).append(',').append(matrix.getF1()).append('\n');
+        }
+        Write(results, csv.toString());
+        csv = new StringBuilder("dataset,model,data,percentage,accuracy\n");
+        for(int model = 0; model < models.size(); model++) {
+            for(Vec2<Integer, Double> data: sampleTrainData.get(model)) {
+                csv.append(Field(dataset)).append(',').append(Field(models.get(model))).append(",train,");
+                csv.append(data.getTValue()).append(',').append(data.getYValue()).append('\n');
+            }
+            for(Vec2<Integer, Double> data: sampleRealData.get(model)) {
+                csv.append(Field(dataset)).append(',').append(Field(models.get(model))).append(",test,");
+                csv.append(data.getTValue()).append(',').append(data.getYValue()).append('\n');
+            }
+        }
+        Write(datapoints, csv.toString());
+    }
+
+    /**
+     *  A method forming the JSON array of datapoints.
+     */
+    private static String Points(ArrayList<Vec2<Integer, Double>> points) {
+        StringBuilder json = new StringBuilder("[");
+        for(int point = 0; point < points.size(); point++) {
+            if (point > 0) json.append(", ");
+            json.append("{\"percentage\": ").append(points.get(point).getTValue());
+            json.append(", \"accuracy\": ").append(Number(points.get(point).getYValue())).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     *  A method forming a JSON number; or null, since JSON has no NaN and infinities.
+     */
+    private static String Number(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? "null" : String.valueOf(value);
+    }
+
+    /**
+     *  A method forming a JSON string.
+     */
+    private static String Quote(String text) {
+        StringBuilder json = new StringBuilder("\"");
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') json.append('\\').append(c);
+            else if (c < 0x20) json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            else json.append(c);
+        }
+        return json.append('"').toString();
+    }
+
+    /**
+     *  A method forming a CSV field; quoted if it contains separators or quotes.
+     */
+    private static String Field(String text) {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) return text;
+        return "\"" + text.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     *  A method writing a text file in UTF-8.
+     */
+    private static void Write(File file, String text) throws IOException {
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+        try {
+            out.write(text);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+/**
+ *  QuantizedModel.java
+ *  A compact, read-only form of the log-likelihood ratios of a trained classifier, for scoring; stored in one
+ *  contiguous array either as floats, half the size of the doubles, or as 16-bit fixed-point values, a quarter of
+ *  their size, so that the ratios of a multi-million-term model stay cache resident and may be shared by many scoring
+ *  threads. Fixed-point values are the ratios divided by a common step and rounded to the nearest integer; they are
+ *  summed exactly as integers and scaled once per document. Every ratio is off by at most the maximum term error of
+ *  the model; so that the log-odds of a document are off by at most its number of tokens times that error, which is
+ *  the error bound of the document. Only documents whose full-precision log-odds lie within their error bound of zero
+ *  may thus be classified differently. Optionally the model keeps the full-precision ratios as well, and rescores
+ *  exactly the documents whose quantized log-odds lie within their error bound of zero; their classification is then
+ *  always the full-precision one, at the cost of reaching for the full-precision array for these few documents alone.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class QuantizedModel {
+    /**
+     * The representations of the ratios; by their number of bits.
+     */
+    public static final int FLOAT = 32, FIXED_16 = 16;
+
+    /**
+     * The relative slack of the error bounds; covering the rounding of the double-precision sums of either form, each
+     * step of which is off by at most 2^-53 of the largest partial sum.
+     */
+    private static final double SUM_SLACK = 1e-15;
+
+    /*
+     *  Local variables.
+     */
+    private final int bits, size;
+    private final double a_priori_log_odds, step, maxTermError, maxRatio;
+    private float[] floatRatios;
+    private short[] fixedRatios;
+    private double[] exactRatios;
+    private ConfusionMatrix exact, k_best_exact, approximate, k_best_approximate;
+    private long flips, k_best_flips;
+    private double maxDeviation, maxBoundRatio;
+
+    /**
+     *  Default constructor override; quantizing the log-likelihood ratios of a trained classifier.
+     *  @param model The trained classifier; after its a posteriori probabilities have been computed.
+     *  @param bits FLOAT or FIXED_16.
+     *  @param exactFallback true for keeping the full-precision ratios; to rescore the documents whose classification
+     *  the quantization might change.
+     */
+    public QuantizedModel(NaiveBayes model, int bits, boolean exactFallback) {
+        if (bits != FLOAT && bits != FIXED_16) throw new IllegalArgumentException("Unsupported quantization: " + bits + " bits");
+        double[] ratios = model.vocabulary.logLikelihoodRatios;
+        if (ratios == null || ratios.length < model.vocabulary.size()) throw new IllegalStateException("The a posteriori probabilities have not been computed");
+        this.bits = bits;
+        this.size = model.vocabulary.size();
+        this.a_priori_log_odds = model.a_priori_log_odds;
+        double max = 0, error = 0;
+        for(int id = 0; id < size; id++) max = Math.max(max, Math.abs(ratios[id]));
+        if (bits == FLOAT) {
+            step = 0;
+            floatRatios = new float[size];
+            for(int id = 0; id < size; id++) {
+                floatRatios[id] = (float) ratios[id];
+                error = Math.max(error, Math.abs(floatRatios[id] - ratios[id]));
+            }
+        } else {
+            step = max > 0 ? max / Short.MAX_VALUE : 1.0;
+            fixedRatios = new short[size];
+            for(int id = 0; id < size; id++) {
+                fixedRatios[id] = (short) Math.round(ratios[id] / step);
+                error = Math.max(error, Math.abs(fixedRatios[id] * step - ratios[id]));
+            }
+        }
+        this.maxRatio = max;
+        this.maxTermError = error;
+        if (exactFallback) this.exactRatios = ratios;
+    }
+
+    /**
+     *  A method scoring a document in log space; as GetLogOdds() of the NaiveBayes class does, with the quantized
+     *  ratios.
+     *  @param tokens The ids of the vocabulary inclusive tokens of the document.
+     *  @return The log-odds of the document being spam; non negative values meaning SPAM.
+     */
+    public double GetLogOdds(int[] tokens) {
+        double logOdds;
+        if (fixedRatios != null) {
+            short[] ratios = fixedRatios;
+            long sum = 0;
+            for(int word: tokens) sum += ratios[word];
+            logOdds = a_priori_log_odds + sum * step;
+        } else {
+            float[] ratios = floatRatios;
+            logOdds = a_priori_log_odds;
+            for(int word: tokens) logOdds += ratios[word];
+        }
+        if (exactRatios == null || Math.abs(logOdds) > GetErrorBound(tokens.length)) return logOdds;
+        double[] ratios = exactRatios; // the quantization might change the classification
+        logOdds = a_priori_log_odds;
+        for(int word: tokens) logOdds += ratios[word];
+        return logOdds;
+    }
+
+    /**
+     *  A method scoring a document in log space; using only the k-Best features. For further information also check
+     *  the documentation of the GetLogOdds() method.
+     *  @param tokens The ids of the vocabulary inclusive tokens of the document.
+     *  @param k_best_properties The set of the ids of the k-Best properties.
+     *  @return The log-odds of the document being spam; non negative values meaning SPAM.
+     */
+    public double GetKBestLogOdds(int[] tokens, BitSet k_best_properties) {
+        double logOdds;
+        int count = 0;
+        if (fixedRatios != null) {
+            short[] ratios = fixedRatios;
+            long sum = 0;
+            for(int word: tokens) {
+                if(k_best_properties.get(word)) { sum += ratios[word]; count++; }
+            }
+            logOdds = a_priori_log_odds + sum * step;
+        } else {
+            float[] ratios = floatRatios;
+            logOdds = a_priori_log_odds;
+            for(int word: tokens) {
+                if(k_best_properties.get(word)) { logOdds += ratios[word]; count++; }
+            }
+        }
+        if (exactRatios == null || Math.abs(logOdds) > GetErrorBound(count)) return logOdds;
+        double[] ratios = exactRatios; // the quantization might change the classification
+        logOdds = a_priori_log_odds;
+        for(int word: tokens) {
+            if(k_best_properties.get(word)) logOdds += ratios[word];
+        }
+        return logOdds;
+    }
+
+    /**
+     *  A method bounding the difference between the quantized and the full-precision log-odds of a document.
+     *  @param tokens The number of tokens of the document scored.
+     *  @return The error bound of the document.
+     */
+    public double GetErrorBound(int tokens) {
+        return tokens * maxTermError + SUM_SLACK * (tokens + 1.0) * (Math.abs(a_priori_log_odds) + tokens * maxRatio + 1.0);
+    }
+
+    /**
+     *  A method measuring the accuracy loss of the quantization on a corpus; scoring each document both with full
+     *  precision, as GetClassificationConclusions() would, and with the quantized ratios. For further information also
+     *  check the documentation of the OutputResults() method.
+     *  @param model The classifier quantized.
+     *  @param corpus The corpus of the documents.
+     *  @param k_best_properties The ids of the k-Best properties.
+     *  @throws IOException If a document could not be read.
+     */
+    public void Measure(NaiveBayes model, CorpusSource corpus, BitSet k_best_properties) throws IOException {
+        double[] ratios = model.vocabulary.logLikelihoodRatios;
+        exact = new ConfusionMatrix(); k_best_exact = new ConfusionMatrix();
+        approximate = new ConfusionMatrix(); k_best_approximate = new ConfusionMatrix();
+        flips = k_best_flips = 0;
+        maxDeviation = maxBoundRatio = 0;
+        for(int document = 0; document < corpus.size(); document++) {
+            ByteBuffer content = corpus.getContent(document);
+            int[] tokens = model.ReadTestDocument(corpus.getName(document), content).getYValue();
+            boolean spam = corpus.isSpam(document);
+            double logOdds = a_priori_log_odds, k_best_logOdds = a_priori_log_odds;
+            int count = 0;
+            for(int word: tokens) {
+                logOdds += ratios[word];
+                if(k_best_properties.get(word)) { k_best_logOdds += ratios[word]; count++; }
+            }
+            double quantized = GetLogOdds(tokens), k_best_quantized = GetKBestLogOdds(tokens, k_best_properties);
+            exact.add(logOdds >= 0, spam); approximate.add(quantized >= 0, spam);
+            k_best_exact.add(k_best_logOdds >= 0, spam); k_best_approximate.add(k_best_quantized >= 0, spam);
+            if ((logOdds >= 0) != (quantized >= 0)) flips++;
+            if ((k_best_logOdds >= 0) != (k_best_quantized >= 0)) k_best_flips++;
+            maxDeviation = Math.max(maxDeviation, Math.max(Math.abs(quantized - logOdds), Math.abs(k_best_quantized - k_best_logOdds)));
+            maxBoundRatio = Math.max(maxBoundRatio, Math.max(Math.abs(quantized - logOdds) / GetErrorBound(tokens.length),
+                    Math.abs(k_best_quantized - k_best_logOdds) / GetErrorBound(count)));
+        }
+    }
+
+    /**
+     *  Method outputting the accuracy loss measured to default output stream (System.out); the full-precision and the
+     *  quantized confusion matrices, the classifications changed, and the largest difference of the log-odds of a
+     *  document, also relative to its error bound, which never exceeds 1.
+     */
+    public void OutputResults() {
+        System.out.println(this);
+        System.out.println("Full precision: " + exact);
+        System.out.println("Quantized: " + approximate + ", changed " + flips);
+        System.out.println("k-Best full precision: " + k_best_exact);
+        System.out.println("k-Best quantized: " + k_best_approximate + ", changed " + k_best_flips);
+        System.out.println("Maximum log-odds difference: " + maxDeviation + ", " + maxBoundRatio + " of the error bound");
+    }
+
+    /**
+     *  Getter for the accuracy loss measured.
+     *  @param k_best true for the k-Best classifications.
+     *  @return The full-precision accuracy less the quantized one; negative if the quantization happened to help.
+     */
+    public double getAccuracyLoss(boolean k_best) {
+        return k_best ? k_best_exact.getAccuracy() - k_best_approximate.getAccuracy() : exact.getAccuracy() - approximate.getAccuracy();
+    }
+
+    /**
+     *  Getter for the maximum term error.
+     *  @return The largest difference between a quantized ratio and its full-precision value.
+     */
+    public double getMaxTermError() {
+        return maxTermError;
+    }
+
+    /**
+     *  Getter for the size of the quantized ratios.
+     *  @return The number of bytes of the array of the quantized ratios.
+     */
+    public long getFootprint() {
+        return (long) size * bits / 8;
+    }
+
+    /**
+     *  Implementation of overridden method toString.
+     */
+    public String toString() {
+        return (bits == FLOAT ? "float" : "16-bit fixed-point") + " ratios of " + size + " terms, " + getFootprint() + " bytes"
+                + ", maximum term error " + maxTermError + (exactRatios != null ? ", with exact fallback" : "");
+    }
+}
@@ -0,0 +1,124 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ *  ShardedTraining.java
+ *  Trains a Naive Bayes classifier map/reduce style; each shard of the train documents is read by a separate process,
+ *  which writes its counts into a partial count file, and the files are then k-way merged into the model. Since no
+ *  process holds more than its own shard until the merge, training scales past the memory and the cores of a single
+ *  JVM; and since the shards are contiguous and merged in order, the model is exactly the one of single-process
+ *  training. The shard processes are launched on the local machine with the classpath of the current one, tokenizing
+ *  with the default tokenizer in the charset of the classifier; while the shard and merge steps may also be run by
+ *  hand, or by a batch scheduler, through the main method. For further information on the file format also check the
+ *  documentation of the PartialCountFile class.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class ShardedTraining {
+    /**
+     *  A method opening a data repository; as a mail archive or a packed corpus segment if it is a file, otherwise as
+     *  a directory.
+     *  @param repository The path of the data repository.
+     *  @return The corpus source of the repository.
+     *  @throws IOException If the corpus segment could not be read.
+     */
+    public static CorpusSource OpenCorpus(String repository) throws IOException {
+        if (!new File(repository).isFile()) return new DirectoryCorpus(repository);
+        return ArchiveCorpus.isArchive(repository) ? new ArchiveCorpus(repository) : new CorpusSegment(repository);
+    }
+
+    /**
+     *  A method reading a shard of the train documents and writing its partial count file; the map step.
+     *  @param corpus The train corpus.
+     *  @param start The index of the first train document of the shard.
+     *  @param end The index following the last train document of the shard.
+     *  @param path The path of the partial count file to be written.
+     *  @param charset The charset of the default tokenizer.
+     *  @throws IOException If the file could not be written.
+     */
+    public static void TrainShard(CorpusSource corpus, int start, int end, String path, Charset charset) throws IOException {
+        NaiveBayes classifier = new NaiveBayes();
+        classifier.setTokenizer(new DefaultTokenizer(charset));
+        CountTable table = new TrainShard(classifier, corpus, start, end).call();
+        PartialCountFile.write(table, end - start, path);
+    }
+
+    /**
+     *  A method training a classifier on a train corpus with several local processes; one per contiguous shard. The
+     *  partial count files are written into a working directory and deleted once merged. The number of train documents
+     *  of the classifier is left to the caller; the a priori and a posteriori probabilities are not computed.
+     *  @param classifier The empty classifier; with a term dictionary of distinct terms and the default tokenizer.
+     *  @param repository The path of the train data repository.
+     *  @param documents The number of train documents of the repository.
+     *  @param processes The number of shard processes.
+     *  @param directory The working directory of the partial count files.
+     *  @throws IOException If a shard process failed or a file could not be read.
+     */
+    public static void Train(NaiveBayes classifier, String repository, int documents, int processes, File directory) throws IOException {
+        if (classifier.sketch != null) throw new IllegalArgumentException("Term admission requires a frequency sketch shared by the shards");
+        if (classifier.vocabulary instanceof HashedTermDictionary) throw new IllegalArgumentException("Hashed term dictionaries have no terms to be merged");
+        if (!(classifier.tokenizer instanceof DefaultTokenizer)) throw new IllegalArgumentException("Shard processes tokenize with the default tokenizer alone");
+        String charset = ((DefaultTokenizer) classifier.tokenizer).getCharset().name();
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        ArrayList<Process> shards = new ArrayList<Process>();
+        ArrayList<String> paths = new ArrayList<String>();
+        int shardSize = (documents + processes - 1) / processes;
+        try {
+            for(int start = 0; start < documents; start += shardSize) {
+                int end = Math.min(start + shardSize, documents);
+                String path = new File(directory, "shard-" + shards.size() + ".counts").getPath();
+                ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), ShardedTraining.class.getName(),
+                        "shard", repository, String.valueOf(start), String.valueOf(end), path, charset);
+                shards.add(builder.inheritIO().start());
+                paths.add(path);
+            }
+            for(int shard = 0; shard < shards.size(); shard++) {
+                int status = shards.get(shard).waitFor();
+                if (status != 0) throw new IOException("Shard process " + shard + " failed with exit status " + status);
+            }
+            PartialCountFile.merge(classifier, paths);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Sharded training was interrupted", e);
+        } finally {
+            for(Process shard: shards) shard.destroy();
+            for(String path: paths) new File(path).delete();
+        }
+    }
+
+    /**
+     *  A method merging partial count files into a trained model snapshot; the reduce step.
+     *  @param paths The paths of the partial count files; in shard order.
+     *  @param model The path of the model snapshot to be written.
+     *  @throws IOException If a file could not be read or the snapshot could not be written.
+     */
+    public static void Merge(String[] paths, String model) throws IOException {
+        NaiveBayes classifier = new NaiveBayes();
+        classifier.numOfTrainData = PartialCountFile.merge(classifier, Arrays.asList(paths));
+        classifier.GetAPrioriProbabilities();
+        classifier.GetAPrioriEntrophy();
+        classifier.GetAPosterioriProbabilities();
+        classifier.SaveModel(model);
+    }
+
+    /**
+     *  Main Method.
+     *  @param args Either "shard", the train data repository, the first and the following last document index of the
+     *  shard, the partial count file to be written and optionally the charset of the tokenizer; or "merge", the model
+     *  snapshot to be written and the partial count files in shard order.
+     */
+    public static void main(String[] args) throws IOException {
+        if ((args.length == 5 || args.length == 6) && args[0].equals("shard")) {
+            Charset charset = args.length == 6 ? Charset.forName(args[5]) : Charset.defaultCharset();
+            TrainShard(OpenCorpus(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]), args[4], charset);
+        } else if (args.length >= 3 && args[0].equals("merge")) {
+            Merge(Arrays.copyOfRange(args, 2, args.length), args[1]);
+        } else {
+            System.err.println("Usage: ShardedTraining shard <repository> <start> <end> <counts> [<charset>]");
+            System.err.println("       ShardedTraining merge <model> <counts>...");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ *  StagedPipeline.java
+ *  Runs the documents of a corpus through a staged pipeline of reader, tokenizer and scorer workers connected by
+ *  bounded queues; so that reading the documents from slow storage overlaps with tokenizing and scoring them. Every
+ *  stage has its own parallelism, and a final sink, on the calling thread, applies the documents to the classifier in
+ *  corpus order; so that training and evaluation have exactly the outcome of processing the documents one by one. The
+ *  documents in flight, from being read until being applied, are bounded as well; so that memory stays flat however
+ *  far a stage falls behind. For training, every document is tokenized into a private partial count table, which the
+ *  sink merges into the vocabulary; for evaluation, documents are tokenized against the vocabulary and scored with all
+ *  features and with the k-Best ones, and the sink records the classifications. The throughput of every stage, as well
+ *  as the depth of its output queue, are published as metrics. For further information also check the documentation
+ *  of the MetricsRegistry class.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class StagedPipeline {
+    /**
+     * The metrics of the stages; the documents completed by every stage, whose rate is its throughput, and the depth
+     * of its output queue.
+     */
+    static final Counter READ_DOCUMENTS = MetricsRegistry.DEFAULT.counter("pipeline.read.documents");
+    static final Counter TOKENIZED_DOCUMENTS = MetricsRegistry.DEFAULT.counter("pipeline.tokenize.documents");
+    static final Counter SCORED_DOCUMENTS = MetricsRegistry.DEFAULT.counter("pipeline.score.documents");
+    static final Counter APPLIED_DOCUMENTS = MetricsRegistry.DEFAULT.counter("pipeline.sink.documents");
+    static final Gauge READ_QUEUE = MetricsRegistry.DEFAULT.gauge("pipeline.read.queue");
+    static final Gauge TOKENIZE_QUEUE = MetricsRegistry.DEFAULT.gauge("pipeline.tokenize.queue");
+    static final Gauge SCORE_QUEUE = MetricsRegistry.DEFAULT.gauge("pipeline.score.queue");
+
+    /*
+     *  Local variables.
+     */
+    private int readers, tokenizers, scorers, capacity;
+
+    /**
+     *  Default constructor override.
+     *  @param readers The number of reader workers.
+     *  @param tokenizers The number of tokenizer workers.
+     *  @param scorers The number of scorer workers; unused by training.
+     *  @param capacity The capacity of every queue; the documents in flight are bounded by twice as many.
+     */
+    public StagedPipeline(int readers, int tokenizers, int scorers, int capacity) {
+        if (readers < 1 || tokenizers < 1 || scorers < 1 || capacity < 1) throw new IllegalArgumentException("Invalid pipeline configuration");
+        this.readers = readers;
+        this.tokenizers = tokenizers;
+        this.scorers = scorers;
+        this.capacity = capacity;
+    }
+
+    /**
+     *  A document travelling through the pipeline.
+     */
+    private static class Item {
+        final int index;
+        String name;
+        ByteBuffer content;
+        boolean spam;
+        CountTable table;
+        int[] tokens;
+        double logOdds, k_best_logOdds;
+
+        Item(int index) {
+            this.index = index;
+        }
+    }
+
+    /**
+     *  The marker of the end of a queue; put once for every worker of the consuming stage.
+     */
+    private static final Item END = new Item(-1);
+
+    /**
+     *  The work of a stage on a single document.
+     */
+    private interface Step {
+        void apply(Item item);
+    }
+
+    /**
+     *  A method training a classifier on every document of a corpus; with exactly the counts, term ids and cached
+     *  documents of reading them sequentially. The a priori and a posteriori probabilities are not computed.
+     *  @param classifier The classifier to be trained.
+     *  @param corpus The train corpus.
+     *  @param cache The tokenized document cache to be filled, keyed by the given prefix and document name; or NULL.
+     *  @param cachePrefix The prefix of the cache keys.
+     */
+    public void Train(final NaiveBayes classifier, CorpusSource corpus, final DocumentCache cache, final String cachePrefix) {
+        Run(corpus, false, new Step() {
+            public void apply(Item item) {
+                if (item.content == null) return; // unreadable documents are skipped
+                item.table = classifier.NewPartialTable();
+                if (cache == null) {
+                    classifier.ReadTrainDocument(item.content, item.spam, item.table);
+                } else {
+                    item.tokens = classifier.ReadTrainTokens(item.content, item.spam, item.table);
+                }
+                item.content = null;
+            }
+        }, null, new Step() {
+            public void apply(Item item) {
+                if (item.table == null) return;
+                int[] merged = classifier.MergeCountTable(item.table);
+                if (cache == null) return;
+                for(int i = 0; i < item.tokens.length; i++) item.tokens[i] = merged[item.tokens[i]];
+                cache.put(cachePrefix + "/" + item.name, item.tokens);
+            }
+        });
+    }
+
+    /**
+     *  A method evaluating a trained classifier on every document of a corpus; with exactly the counters, results and
+     *  accuracy checkpoints of GetClassificationConclusions() and GetKBestClassificationConclusions() invoked for the
+     *  documents in corpus order.
+     *  @param classifier The trained classifier.
+     *  @param corpus The corpus of the documents.
+     *  @param k_best_properties The ids of the k-Best properties.
+     *  @param dataType 'R' for test data or 'T' for train data.
+     */
+    public void Evaluate(final NaiveBayes classifier, CorpusSource corpus, final BitSet k_best_properties, final char dataType) {
+        Run(corpus, true, new Step() {
+            public void apply(Item item) {
+                if (item.content == null) item.content = ByteBuffer.allocate(0);
+                item.tokens = classifier.ReadTestDocument(item.name, item.content).getYValue();
+                item.content = null;
+            }
+        }, new Step() {
+            public void apply(Item item) {
+                long start = System.nanoTime();
+                item.logOdds = classifier.GetLogOdds(item.tokens);
+                NaiveBayes.SCORE_LATENCY.record(System.nanoTime() - start);
+                NaiveBayes.SCORED_DOCUMENTS.increment();
+                start = System.nanoTime();
+                item.k_best_logOdds = classifier.GetKBestLogOdds(item.tokens, k_best_properties);
+                NaiveBayes.K_BEST_SCORE_LATENCY.record(System.nanoTime() - start);
+            }
+        }, new Step() {
+            public void apply(Item item) {
+                classifier.RecordClassification(item.name, item.logOdds, dataType);
+                classifier.RecordKBestClassification(item.name, item.k_best_logOdds, dataType);
+            }
+        });
+    }
+
+    /**
+     *  A method running the stages over every document of a corpus; applying the documents through the sink in
+     *  corpus order, on the calling thread. A sequential corpus is read by a single reader worker, in order.
+     */
+    private void Run(final CorpusSource corpus, boolean scoring, final Step tokenize, final Step score, Step sink) {
+        final int documents = corpus.size();
+        int readers = corpus.isRandomAccess() ? this.readers : 1;
+        final BlockingQueue<Item> read = new ArrayBlockingQueue<Item>(capacity);
+        final BlockingQueue<Item> tokenized = new ArrayBlockingQueue<Item>(capacity);
+        final BlockingQueue<Item> scored = scoring ? new ArrayBlockingQueue<Item>(capacity) : tokenized;
+        final Semaphore inFlight = new Semaphore(2 * capacity);
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        ExecutorService pool = Executors.newFixedThreadPool(readers + tokenizers + (scoring ? scorers : 0));
+        try {
+            final AtomicInteger activeReaders = new AtomicInteger(readers);
+            for(int worker = 0; worker < readers; worker++) {
+                pool.execute(Worker(failure, new Runnable() {
+                    public void run() {
+                        try {
+                            while (true) {
+                                inFlight.acquire();
+                                int index = next.getAndIncrement();
+                                if (index >= documents) {
+                                    inFlight.release();
+                                    break;
+                                }
+                                read.put(Read(corpus, index));
+                                READ_DOCUMENTS.increment();
+                                READ_QUEUE.set(read.size());
+                            }
+                            if (activeReaders.decrementAndGet() == 0) End(read, tokenizers);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }));
+            }
+            Stage(pool, failure, tokenizers, read, READ_QUEUE, tokenize, tokenized, TOKENIZE_QUEUE, TOKENIZED_DOCUMENTS, scoring ? scorers : 1);
+            if (scoring) Stage(pool, failure, scorers, tokenized, TOKENIZE_QUEUE, score, scored, SCORE_QUEUE, SCORED_DOCUMENTS, 1);
+            Sink(scored, scoring ? SCORE_QUEUE : TOKENIZE_QUEUE, sink, inFlight, failure);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The pipeline was interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
+        if (failure.get() != null) throw new IllegalStateException("The pipeline failed", failure.get());
+    }
+
+    /**
+     *  A method reading a document; displaying an error description if reading failed.
+     */
+    private static Item Read(CorpusSource corpus, int index) {
+        Item item = new Item(index);
+        item.name = corpus.getName(index);
+        item.spam = corpus.isSpam(index);
+        try {
+            long start = System.nanoTime();
+            item.content = corpus.getContent(index);
+            TestLogic.READ_LATENCY.record(System.nanoTime() - start);
+        } catch (IOException e) {
+            System.err.println("The system could not find the file specified");
+            e.printStackTrace();
+        }
+        return item;
+    }
+
+    /**
+     *  A method starting the workers of a stage; the last worker to finish marks the end of the output queue for
+     *  every worker of the consuming stage.
+     */
+    private static void Stage(ExecutorService pool, AtomicReference<Throwable> failure, int parallelism, final BlockingQueue<Item> input,
+            final Gauge inputDepth, final Step step, final BlockingQueue<Item> output, final Gauge outputDepth, final Counter completed,
+            final int consumers) {
+        final AtomicInteger active = new AtomicInteger(parallelism);
+        for(int worker = 0; worker < parallelism; worker++) {
+            pool.execute(Worker(failure, new Runnable() {
+                public void run() {
+                    try {
+                        for(Item item = input.take(); item != END; item = input.take()) {
+                            inputDepth.set(input.size());
+                            step.apply(item);
+                            output.put(item);
+                            completed.increment();
+                            outputDepth.set(output.size());
+                        }
+                        if (active.decrementAndGet() == 0) End(output, consumers);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }));
+        }
+    }
+
+    /**
+     *  A method wrapping the work of a worker; recording the first failure and interrupting the sink.
+     */
+    private static Runnable Worker(final AtomicReference<Throwable> failure, final Runnable work) {
+        final Thread sink = Thread.currentThread();
+        return new Runnable() {
+            public void run() {
+                try {
+                    work.run();
+                } catch (RuntimeException e) {
+                    if (failure.compareAndSet(null, e)) sink.interrupt();
+                } catch (Error e) {
+                    if (failure.compareAndSet(null, e)) sink.interrupt();
+                    throw e;
+                }
+            }
+        };
+    }
+
+    /**
+     *  A method marking the end of a queue for its consumers.
+     */
+    private static void End(BlockingQueue<Item> queue, int consumers) throws InterruptedException {
+        for(int consumer = 0; consumer < consumers; consumer++) queue.put(END);
+    }
+
+    /**
+     *  A method applying the documents in corpus order; holding the ones arriving early until their turn, which the
+     *  bound on the documents in flight keeps few.
+     */
+    private static void Sink(BlockingQueue<Item> input, Gauge inputDepth, Step sink, Semaphore inFlight, AtomicReference<Throwable> failure)
+            throws InterruptedException {
+        HashMap<Integer, Item> early = new HashMap<Integer, Item>();
+        int expected = 0;
+        try {
+            for(Item item = input.take(); item != END; item = input.take()) {
+                inputDepth.set(input.size());
+                early.put(item.index, item);
+                for(Item ready = early.remove(expected); ready != null; ready = early.remove(expected)) {
+                    sink.apply(ready);
+                    APPLIED_DOCUMENTS.increment();
+                    inFlight.release();
+                    expected++;
+                }
+            }
+        } catch (InterruptedException e) {
+            if (failure.get() == null) throw e; // otherwise the failure is reported by the caller
+            Thread.interrupted();
+        }
+    }
+}
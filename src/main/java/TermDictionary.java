@@ -0,0 +1,355 @@
+import java.util.Arrays;
+
+/**
+ *  TermDictionary.java
+ *  Represents a primitive-specialized term dictionary; assigning every distinct term a dense integer id once, and
+ *  keeping the per-term counts and a posteriori probabilities in parallel primitive arrays indexed by that id. Terms
+ *  are located through an open addressing hash table of ids, so no map entries or boxed numbers are created per term.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class TermDictionary {
+    /**
+     * The terms of the dictionary; indexed by their ids.
+     */
+    protected String[] terms;
+
+    /**
+     * The hash codes of the terms; indexed by their ids.
+     */
+    protected int[] hashes;
+
+    /**
+     * The open addressing hash table; storing the id of each term plus one, or zero for empty slots.
+     */
+    protected int[] slots;
+
+    /**
+     * The appearences of each term in all categories, as well as in the spam category; indexed by term ids.
+     */
+    protected int[] counts, spamCounts;
+
+    /**
+     * The a posteriori probabilities of each term per category; indexed by term ids.
+     */
+    protected double[] spamPosteriors, hamPosteriors;
+
+    /**
+     * The log-likelihood ratio of each term; the logarithm of its spam over its ham a posteriori probability.
+     */
+    protected double[] logLikelihoodRatios;
+
+    /*
+     * Local variables.
+     */
+    protected int size, mask;
+
+    /**
+     * Default constructor override.
+     */
+    public TermDictionary() {
+        this(1024);
+    }
+
+    /**
+     * Overloaded constructor presizing the dictionary.
+     * @param expectedTerms The number of terms expected to be stored.
+     */
+    public TermDictionary(int expectedTerms) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedTerms) * 2 - 1) * 2;
+        slots = new int[capacity];
+        mask = capacity - 1;
+        terms = new String[capacity / 2];
+        hashes = new int[capacity / 2];
+        counts = new int[capacity / 2];
+        spamCounts = new int[capacity / 2];
+        size = 0;
+    }
+
+    /**
+     * A method spreading the higher bits of a hash code; since the table masks only the lower ones.
+     * @param hash The hash code of a term.
+     * @return The spread hash code.
+     */
+    protected static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Getter for the number of terms.
+     * @return The number of terms stored.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Getter for a term.
+     * @param id The id of the term.
+     * @return The term having the given id.
+     */
+    public String getTerm(int id) {
+        return terms[id];
+    }
+
+    /**
+     * A method locating the id of a term.
+     * @param term The term to be located.
+     * @return The id of the term, or -1 if the term is not contained.
+     */
+    public int getId(String term) {
+        return getId(term, term.hashCode());
+    }
+
+    /**
+     * A method locating the id of a term; given its precomputed hash code.
+     * @param term The term to be located.
+     * @param hash The hash code of the term.
+     * @return The id of the term, or -1 if the term is not contained.
+     */
+    protected int getId(String term, int hash) {
+        for(int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) return -1;
+            if (hashes[id] == hash && terms[id].equals(term)) return id;
+        }
+    }
+
+    /**
+     * A method locating the id of a term given as a range of characters; without materializing it as a String.
+     * @param buffer The characters containing the term.
+     * @param offset The index of the first character of the term.
+     * @param length The number of characters of the term.
+     * @param hash The hash code of the term.
+     * @return The id of the term, or -1 if the term is not contained.
+     */
+    public int getId(char[] buffer, int offset, int length, int hash) {
+        for(int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) return -1;
+            if (hashes[id] == hash && matches(terms[id], buffer, offset, length)) return id;
+        }
+    }
+
+    /**
+     * A method adding a term given as a range of characters with zero counts; if it is not already contained. The
+     * String of the term is only created on insertion.
+     * @param buffer The characters containing the term.
+     * @param offset The index of the first character of the term.
+     * @param length The number of characters of the term.
+     * @param hash The hash code of the term.
+     * @return The id of the term.
+     */
+    public int add(char[] buffer, int offset, int length, int hash) {
+        int slot = spread(hash) & mask;
+        for(; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (hashes[id] == hash && matches(terms[id], buffer, offset, length)) return id;
+        }
+        return insert(slot, new String(buffer, offset, length), hash);
+    }
+
+    /**
+     * A method comparing a term with a range of characters.
+     */
+    private static boolean matches(String term, char[] buffer, int offset, int length) {
+        if (term.length() != length) return false;
+        for(int i = 0; i < length; i++) {
+            if (term.charAt(i) != buffer[offset + i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * A method adding a term with zero counts; if it is not already contained.
+     * @param term The term to be added.
+     * @return The id of the term.
+     */
+    public int add(String term) {
+        return add(term, term.hashCode());
+    }
+
+    /**
+     * A method adding a term with zero counts; given its precomputed hash code.
+     * @param term The term to be added.
+     * @param hash The hash code of the term.
+     * @return The id of the term.
+     */
+    protected int add(String term, int hash) {
+        int slot = spread(hash) & mask;
+        for(; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (hashes[id] == hash && terms[id].equals(term)) return id;
+        }
+        return insert(slot, term, hash);
+    }
+
+    /**
+     * A method adding a term of another dictionary with zero counts; if it is not already contained.
+     * @param other The dictionary containing the term; of the same kind as this one.
+     * @param otherId The id of the term in the other dictionary.
+     * @return The id of the term in this dictionary.
+     */
+    protected int addFrom(TermDictionary other, int otherId) {
+        return add(other.terms[otherId], other.hashes[otherId]);
+    }
+
+    /**
+     * A method creating an empty dictionary of the same kind; for partial count tables to be merged into this one.
+     * @return The empty dictionary.
+     */
+    protected TermDictionary newPartial() {
+        return new TermDictionary();
+    }
+
+    /**
+     * A method creating a read-only snapshot of the dictionary; holding the terms and counts it contains now, while
+     * this dictionary keeps being updated. The terms, hash codes and hash table are shared, since they are only ever
+     * appended to, and terms added later are ignored by the snapshot; only the counts are copied.
+     * @return The snapshot.
+     */
+    protected TermDictionary snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * A read-only snapshot of a term dictionary; sharing its append-only arrays, and ignoring ids of terms added after it.
+     */
+    private static class Snapshot extends TermDictionary {
+        Snapshot(TermDictionary source) {
+            super(0);
+            terms = source.terms;
+            hashes = source.hashes;
+            slots = source.slots;
+            mask = source.mask;
+            size = source.size;
+            counts = Arrays.copyOf(source.counts, size);
+            spamCounts = Arrays.copyOf(source.spamCounts, size);
+        }
+
+        protected int getId(String term, int hash) {
+            for(int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+                int id = slots[slot] - 1;
+                if (id < 0) return -1;
+                if (id < size && hashes[id] == hash && terms[id].equals(term)) return id;
+            }
+        }
+
+        public int getId(char[] buffer, int offset, int length, int hash) {
+            for(int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+                int id = slots[slot] - 1;
+                if (id < 0) return -1;
+                if (id < size && hashes[id] == hash && matches(terms[id], buffer, offset, length)) return id;
+            }
+        }
+
+        public int add(char[] buffer, int offset, int length, int hash) {
+            int id = getId(buffer, offset, length, hash);
+            if (id < 0) throw new UnsupportedOperationException("Term dictionary snapshots are read-only");
+            return id;
+        }
+
+        protected int add(String term, int hash) {
+            int id = getId(term, hash);
+            if (id < 0) throw new UnsupportedOperationException("Term dictionary snapshots are read-only");
+            return id;
+        }
+
+        protected void grow() {
+            throw new UnsupportedOperationException("Term dictionary snapshots are read-only");
+        }
+    }
+
+    /**
+     * Getter for the appearences of a term, from which its a posteriori probabilities are estimated.
+     * @param id The id of the term.
+     * @return The appearences of the term in all categories.
+     */
+    protected int countOf(int id) {
+        return counts[id];
+    }
+
+    /**
+     * Getter for the spam appearences of a term, from which its a posteriori probabilities are estimated.
+     * @param id The id of the term.
+     * @return The appearences of the term in the spam category.
+     */
+    protected int spamCountOf(int id) {
+        return spamCounts[id];
+    }
+
+    /**
+     * Getter for the number of ids that appeared in the train documents.
+     * @return The number of ids of non zero appearences; all of them for dictionaries of distinct terms.
+     */
+    protected int appearedCount() {
+        return size;
+    }
+
+    /**
+     * Getter for the presence of terms; which dictionaries of hashed terms do not store.
+     * @return true if the terms of the dictionary are stored.
+     */
+    protected boolean hasTerms() {
+        return true;
+    }
+
+    /**
+     * Getter for the id sharing the counts of a given one; whose a posteriori probabilities change along with its own.
+     * @param id The id of the term.
+     * @return The id sharing its counts; the id itself for dictionaries of distinct terms.
+     */
+    protected int pairOf(int id) {
+        return id;
+    }
+
+    /**
+     * A method storing a new term at an empty slot.
+     */
+    protected int insert(int slot, String term, int hash) {
+        if (size == terms.length) { // the table doubles as well; so the empty slot must be located again
+            grow();
+            slot = spread(hash) & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+        }
+        int id = size++;
+        terms[id] = term;
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+        return id;
+    }
+
+    /**
+     * A method doubling the capacity of the dictionary; keeping the load factor of the hash table at most one half.
+     */
+    protected void grow() {
+        int capacity = terms.length * 2;
+        terms = Arrays.copyOf(terms, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        spamCounts = Arrays.copyOf(spamCounts, capacity);
+        slots = new int[capacity * 2];
+        mask = slots.length - 1;
+        for(int id = 0; id < size; id++) {
+            int slot = spread(hashes[id]) & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = id + 1;
+        }
+    }
+
+    /**
+     * A method allocating the a posteriori probabilities and log-likelihood ratios arrays; so that they cover every
+     * term currently stored. Values already computed are preserved.
+     */
+    protected void allocatePosteriors() {
+        if (spamPosteriors == null) {
+            spamPosteriors = new double[counts.length];
+            hamPosteriors = new double[counts.length];
+            logLikelihoodRatios = new double[counts.length];
+        } else if (spamPosteriors.length < size) {
+            spamPosteriors = Arrays.copyOf(spamPosteriors, counts.length);
+            hamPosteriors = Arrays.copyOf(hamPosteriors, counts.length);
+            logLikelihoodRatios = Arrays.copyOf(logLikelihoodRatios, counts.length);
+        }
+    }
+}
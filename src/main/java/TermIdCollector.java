@@ -0,0 +1,65 @@
+import java.util.Arrays;
+
+/**
+ *  TermIdCollector.java
+ *  A token sink collecting the ids of the vocabulary inclusive tokens of a document into a growable primitive array;
+ *  tokens not contained in the term dictionary are either skipped or added to it.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class TermIdCollector implements TokenSink {
+    /*
+     *  Local variables.
+     */
+    private TermDictionary vocabulary;
+    private boolean addTerms;
+    private int[] ids;
+    private int size, tokens;
+
+    /**
+     *  Default constructor override.
+     *  @param vocabulary The term dictionary used for locating the tokens.
+     */
+    public TermIdCollector(TermDictionary vocabulary) {
+        this(vocabulary, false);
+    }
+
+    /**
+     *  Overloaded constructor optionally adding the tokens not contained in the term dictionary.
+     *  @param vocabulary The term dictionary used for locating the tokens.
+     *  @param addTerms true for adding unknown tokens to the term dictionary, with zero counts, rather than skipping them.
+     */
+    public TermIdCollector(TermDictionary vocabulary, boolean addTerms) {
+        this.vocabulary = vocabulary;
+        this.addTerms = addTerms;
+        this.ids = new int[256];
+        this.size = 0;
+    }
+
+    /**
+     * Implementation of overridden method accept.
+     */
+    public void accept(char[] buffer, int offset, int length, int hash) {
+        tokens++;
+        int id = addTerms ? vocabulary.add(buffer, offset, length, hash) : vocabulary.getId(buffer, offset, length, hash);
+        if (id >= 0) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+    }
+
+    /**
+     * Getter for the number of tokens.
+     * @return The number of tokens accepted; including the ones not contained in the term dictionary.
+     */
+    public int getTokens() {
+        return tokens;
+    }
+
+    /**
+     * Getter for the collected ids.
+     * @return The ids of the vocabulary inclusive tokens; in order of appearence.
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+}
@@ -1,5 +1,13 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.BitSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  *  TestLogic.java
@@ -9,21 +17,48 @@ import java.util.HashSet;
 public class TestLogic {
     private NaiveBayes thisvoc;
     private GraphicsDAO simpleNB, k_best_FS;
-    private ArrayList<String> train_data_filenames;
-    private HashSet<String> k_best_properties;
+    private CorpusSource train_data;
+    private BitSet k_best_properties;
+    private DocumentCache cache;
+    private File shardDirectory;
+    private StagedPipeline pipeline;
+    private File reportDirectory;
+
+    /**
+     *  The metrics of reading documents and of the training phases. For further information also check the
+     *  documentation of the MetricsRegistry class.
+     */
+    static final LatencyHistogram READ_LATENCY = MetricsRegistry.DEFAULT.histogram("read.latency");
+    static final LatencyHistogram READ_PHASE = MetricsRegistry.DEFAULT.histogram("phase.read");
+    static final LatencyHistogram A_PRIORI_PHASE = MetricsRegistry.DEFAULT.histogram("phase.a_priori");
+    static final LatencyHistogram A_POSTERIORI_PHASE = MetricsRegistry.DEFAULT.histogram("phase.a_posteriori");
 
     private String trainDataRepository, testDataRepository, dataset;
     private double kappa;
+    private int workers, processes = 1;
 
     /**
      *  Default comparator override.
+     * @param trainRep The train data repository; either a directory or a packed corpus segment.
+     * @param testRep The test data repository; either a directory or a packed corpus segment.
+     * @param dataset The Naive Bayes dataset for the statistics.
+     * @param k The data percentage to be used from the vocabulary dataset; as the k-best.
+     */
+    public TestLogic(String trainRep, String testRep, String dataset, double k) {
+        this(trainRep, testRep, dataset, k, 1);
+    }
+
+    /**
+     *  Overloaded constructor enabling parallel training.
      * @param trainRep The train data repository.
      * @param testRep The test data repository.
      * @param dataset The Naive Bayes dataset for the statistics.
      * @param k The data percentage to be used from the vocabulary dataset; as the k-best.
+     * @param workers The number of training workers; 1 for sequential training.
      */
-    public TestLogic(String trainRep, String testRep, String dataset, double k) {
+    public TestLogic(String trainRep, String testRep, String dataset, double k, int workers) {
         thisvoc = new NaiveBayes();
+        this.workers = workers;
         this.trainDataRepository = trainRep;
         this.testDataRepository = testRep;
         this.dataset = dataset;
@@ -33,6 +68,142 @@ public class TestLogic {
     }
 
 
+    /**
+     *  A method switching the classifier to feature hashing; so that its memory footprint is fixed regardless of the
+     *  terms of the train documents. It must be invoked before training. For further information also check the
+     *  documentation of the HashedTermDictionary class.
+     *  @param buckets The number of count buckets.
+     *  @param signed true for signed hashing.
+     */
+    public void setFeatureHashing(int buckets, boolean signed) {
+        thisvoc = new NaiveBayes(new HashedTermDictionary(buckets, signed));
+    }
+
+    /**
+     *  A method admitting terms into the vocabulary only after a minimum number of occurrences in the train documents;
+     *  counted by a frequency sketch. It must be invoked before training. For further information also check the
+     *  documentation of the FrequencySketch class.
+     *  @param minFrequency The minimum occurrences of a term for being admitted into the vocabulary.
+     *  @param sketchWidth The number of counters per row of the frequency sketch.
+     */
+    public void setTermAdmission(int minFrequency, int sketchWidth) {
+        thisvoc.setFrequencySketch(new FrequencySketch(sketchWidth, minFrequency));
+    }
+
+    /**
+     *  A method training with several local processes rather than threads; each one reading a shard of the train
+     *  documents into a partial count file, which are merged into the vocabulary afterwards. The document cache is not
+     *  filled. For further information also check the documentation of the ShardedTraining class.
+     *  @param processes The number of shard processes; 1 for training within this process.
+     *  @param directory The working directory of the partial count files.
+     */
+    public void setTrainProcesses(int processes, File directory) {
+        this.processes = processes;
+        this.shardDirectory = directory;
+    }
+
+    /**
+     *  Setter for the staged pipeline; reading, tokenizing and scoring the documents on separate workers connected by
+     *  bounded queues, for training as well as for evaluation, so that reading overlaps with computing. For further
+     *  information also check the documentation of the StagedPipeline class.
+     *  @param pipeline The staged pipeline, or NULL for the workers of the constructor.
+     */
+    public void setPipeline(StagedPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    /**
+     *  Setter for the tokenized document cache; filled while training and consulted by every later pass over the
+     *  train documents, instead of reading and tokenizing them again. For further information also check the
+     *  documentation of the DocumentCache class. With term admission the cache is not used; see TrainCache().
+     *  @param cache The tokenized document cache, or NULL for reading the train documents on every pass.
+     */
+    public void setDocumentCache(DocumentCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     *  A method choosing the cache of the train documents. With term admission there is none; since the term ids of a
+     *  document would miss its tokens not yet admitted when it was read, the documents are read again instead.
+     *  @return The tokenized document cache; or NULL.
+     */
+    private DocumentCache TrainCache() {
+        return thisvoc.sketch == null ? cache : null;
+    }
+
+    /**
+     *  A method switching the test to headless reporting; the charts are rendered to PNG and SVG files, and the results
+     *  written as a JSON report and CSV files, into a directory instead of being shown in Graphics windows. No window is
+     *  created, so that AWT is not initialized for a display at all; which, for the system property to take effect,
+     *  requires this method to be called before any chart or window is created. For further information also check
+     *  the documentation of the PerformanceChart and PerformanceReport classes.
+     *  @param directory The directory of the report files; created if missing.
+     */
+    public void setReportDirectory(File directory) {
+        System.setProperty("java.awt.headless", "true");
+        if (!directory.isDirectory() && !directory.mkdirs()) throw new IllegalArgumentException("The system could not create the report directory specified");
+        this.reportDirectory = directory;
+    }
+
+    /**
+     *  A method forming the cache key of a train document; qualified by its repository, since names are not unique
+     *  across repositories.
+     */
+    private String CacheKey(int index) {
+        return trainDataRepository + "/" + train_data.getName(index);
+    }
+
+    /**
+     *  A method opening a data repository; as a mail archive or a packed corpus segment if it is a file, otherwise as a
+     *  directory. For further information also check the documentation of the ArchiveCorpus and CorpusPacker classes.
+     *  @param repository The data repository under the src directory.
+     *  @return The corpus source of the repository.
+     */
+    private CorpusSource OpenCorpus(String repository) {
+        File path = new File("src", repository);
+        System.out.println(path);
+        if (!path.isFile()) return new DirectoryCorpus(path.getPath());
+        try {
+            if (ArchiveCorpus.isArchive(path.getName())) return new ArchiveCorpus(path.getPath());
+            return new CorpusSegment(path.getPath());
+        } catch (IOException e) {
+            throw new IllegalStateException("The system could not read the corpus segment specified", e);
+        }
+    }
+
+    /**
+     *  A method releasing the resources of a corpus once a pass over it is done; such as the reader thread and the open
+     *  file of a mail archive, which are acquired again if the corpus is read later on.
+     *  @param corpus The corpus source.
+     */
+    private static void Close(CorpusSource corpus) {
+        if (!(corpus instanceof Closeable)) return;
+        try {
+            ((Closeable) corpus).close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     *  A method reading the contents of a document; displaying an error description if reading failed.
+     *  @param corpus The corpus source of the document.
+     *  @param index The index of the document.
+     *  @return The encoded contents of the document, or NULL if reading failed.
+     */
+    private ByteBuffer ReadDocument(CorpusSource corpus, int index) {
+        try {
+            long start = System.nanoTime();
+            ByteBuffer content = corpus.getContent(index);
+            READ_LATENCY.record(System.nanoTime() - start);
+            return content;
+        } catch (IOException e) {
+            System.err.println("The system could not find the file specified");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     /**
      *  A method enabling calculation of the a priori probabilities, as well as a priori enthropy, for the appearences of each
      *  category; using the precalculated a priori probabilities but not the context of the datasets. Later on, also permits computations
@@ -41,14 +212,81 @@ public class TestLogic {
      *  or the NaiveBayes class.
      */
     public void TrainNaiveBayes() {
-        train_data_filenames = thisvoc.listAllFiles(".\\src\\" + trainDataRepository);
-        thisvoc.numOfTrainData = train_data_filenames.size();
-        for(int train = 0; train < thisvoc.numOfTrainData; train++) {
-            thisvoc.ReadTrainFile("src/" + trainDataRepository + "/" + train_data_filenames.get(train));
+        long start = System.nanoTime();
+        DocumentCache cache = TrainCache();
+        train_data = OpenCorpus(trainDataRepository);
+        thisvoc.numOfTrainData = train_data.size();
+        if (processes > 1) {
+            try {
+                ShardedTraining.Train(thisvoc, new File("src", trainDataRepository).getPath(), thisvoc.numOfTrainData, processes, shardDirectory);
+            } catch (IOException e) {
+                throw new IllegalStateException("Sharded training failed", e);
+            }
+        } else if (pipeline != null) {
+            pipeline.Train(thisvoc, train_data, cache, trainDataRepository);
+        } else if (workers > 1 && train_data.isRandomAccess()) {
+            TrainInParallel(cache);
+        } else if (workers > 1) { // a sequential corpus is read in order by a single reader, and tokenized by the workers
+            new StagedPipeline(1, workers, 1, ArchiveCorpus.READ_AHEAD).Train(thisvoc, train_data, cache, trainDataRepository);
+        } else {
+            for(int train = 0; train < thisvoc.numOfTrainData; train++) {
+                ByteBuffer content = ReadDocument(train_data, train);
+                if (content == null) continue;
+                if (cache == null) {
+                    thisvoc.ReadTrainDocument(content, train_data.isSpam(train));
+                } else {
+                    CountTable table = thisvoc.NewCountTable();
+                    cache.put(CacheKey(train), thisvoc.ReadTrainTokens(content, train_data.isSpam(train), table));
+                    thisvoc.spam_counter += table.spam_counter;
+                    thisvoc.appearences += table.appearences;
+                }
+            }
         }
+        Close(train_data);
+        READ_PHASE.record(System.nanoTime() - start);
+        start = System.nanoTime();
         thisvoc.GetAPrioriProbabilities();
         thisvoc.GetAPrioriEntrophy();
+        A_PRIORI_PHASE.record(System.nanoTime() - start);
+        start = System.nanoTime();
         thisvoc.GetAPosterioriProbabilities();
+        A_POSTERIORI_PHASE.record(System.nanoTime() - start);
+    }
+
+    /**
+     *  A method splitting the train files into one contiguous shard per worker, reading every shard into a private
+     *  count table on a fixed worker pool and merging the tables into the vocabulary in shard order; producing exactly
+     *  the counts of the sequential reading. For further information also check the documentation of the TrainShard
+     *  class and the MergeCountTable() method of the NaiveBayes class.
+     */
+    private void TrainInParallel(DocumentCache cache) {
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            ArrayList<Future<CountTable>> shards = new ArrayList<Future<CountTable>>();
+            int shardSize = (train_data.size() + workers - 1) / workers;
+            for(int start = 0; start < train_data.size(); start += shardSize) {
+                int end = Math.min(start + shardSize, train_data.size());
+                shards.add(pool.submit(new TrainShard(thisvoc, train_data, start, end, cache != null)));
+            }
+            int train = 0;
+            for(Future<CountTable> shard: shards) {
+                CountTable table = shard.get();
+                int[] merged = thisvoc.MergeCountTable(table);
+                if (cache == null) continue;
+                for(int[] ids: table.documents) { // shard ids are translated into vocabulary ids
+                    if (ids == null) { train++; continue; } // unreadable documents are not cached
+                    for(int i = 0; i < ids.length; i++) ids[i] = merged[ids[i]];
+                    cache.put(CacheKey(train++), ids);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Parallel training was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Parallel training failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
     }
 
     /**
@@ -62,12 +300,27 @@ public class TestLogic {
      */
     public void TestOnTrainData() {
         k_best_properties = thisvoc.GetInformationGainConclusions(kappa);
+        DocumentCache cache = TrainCache();
         ArrayList<Vec2<Integer,Double>> graphData = null, k_best_graphData = null;
-        for(int train = 0; train< thisvoc.numOfTrainData; train++) {
-            Vec2<String, ArrayList<String>> testData = thisvoc.ReadTestFile("src/" + trainDataRepository + "/" + train_data_filenames.get(train));
-            thisvoc.GetClassificationConclusions(testData, 'T');
-            thisvoc.GetKBestClassificationConclusions(testData, k_best_properties, 'T');
+        if (pipeline != null && cache == null) { // cached documents need neither reading nor tokenizing
+            pipeline.Evaluate(thisvoc, train_data, k_best_properties, 'T');
+        } else {
+            for(int train = 0; train< thisvoc.numOfTrainData; train++) {
+                int[] cached = cache == null ? null : cache.get(CacheKey(train));
+                Vec2<String, int[]> testData;
+                if (cached != null) { // every train token is contained in the vocabulary
+                    testData = new Vec2<String, int[]>(train_data.getName(train), cached);
+                } else {
+                    ByteBuffer content = ReadDocument(train_data, train);
+                    if (content == null) content = ByteBuffer.allocate(0);
+                    testData = thisvoc.ReadTestDocument(train_data.getName(train), content);
+                }
+                thisvoc.GetClassificationConclusions(testData, 'T');
+                thisvoc.GetKBestClassificationConclusions(testData, k_best_properties, 'T');
+            }
         }
+        Close(train_data);
+        if (cache != null) System.out.println(cache);
         simpleNB.LoadTrainData(thisvoc.dataPlotPts);
         k_best_FS.LoadTrainData(thisvoc.k_best_dataPlotPts);
         OutputResults();
@@ -80,22 +333,162 @@ public class TestLogic {
      *   document's category. Thus, we are interested in minimizing the a posteriori entrophy. For further information also check the
      *   documentation of GetInformationGainConclusions(), GetClassificationConclusions(), GetKBestClassificationConclusions()
      *   methods of the NaiveBayes class. Finally, connects the Naive Bayes implementation storage with the graphical output,
-     *   enabling setting value for NB performances on the test dataset graphics DAO.
+     *   enabling setting value for NB performances on the test dataset graphics DAO. With several workers the test documents
+     *   are evaluated concurrently, with the same outcome; for further information also check the documentation of the
+     *   ParallelEvaluation class. With a staged pipeline they are evaluated on it instead, with the same outcome as well.
      */
     public void TestOnRealData() {
         thisvoc.reset();
-        ArrayList<String> test_data_filenames = thisvoc.listAllFiles(".\\src\\" + testDataRepository);
-        thisvoc.numOfTestData = test_data_filenames.size();
-        for(int test = 0; test< thisvoc.numOfTestData; test++) {
-            Vec2<String, ArrayList<String>> testData = thisvoc.ReadTestFile("src/" + testDataRepository + "/" + test_data_filenames.get(test));
-            thisvoc.GetClassificationConclusions(testData, 'R');
-            thisvoc.GetKBestClassificationConclusions(testData, k_best_properties, 'R');
+        CorpusSource test_data = OpenCorpus(testDataRepository);
+        thisvoc.numOfTestData = test_data.size();
+        try {
+            if (pipeline != null) {
+                pipeline.Evaluate(thisvoc, test_data, k_best_properties, 'R');
+            } else if (workers > 1) {
+                new ParallelEvaluation(thisvoc, k_best_properties, 'R', workers).Evaluate(test_data);
+            } else {
+                for(int test = 0; test< thisvoc.numOfTestData; test++) {
+                    ByteBuffer content = ReadDocument(test_data, test);
+                    if (content == null) content = ByteBuffer.allocate(0);
+                    Vec2<String, int[]> testData = thisvoc.ReadTestDocument(test_data.getName(test), content);
+                    thisvoc.GetClassificationConclusions(testData, 'R');
+                    thisvoc.GetKBestClassificationConclusions(testData, k_best_properties, 'R');
+                }
+            }
+        } finally {
+            Close(test_data);
         }
         simpleNB.LoadRealData(thisvoc.dataPlotPts);
         k_best_FS.LoadRealData(thisvoc.k_best_dataPlotPts);
         OutputResults();
-        simpleNB.Run();
-        k_best_FS.Run();
+        if (reportDirectory != null) {
+            ConfusionMatrix simple = new ConfusionMatrix(), k_best = new ConfusionMatrix();
+            simple.TP = thisvoc.TP; simple.TN = thisvoc.TN; simple.FP = thisvoc.FP; simple.FN = thisvoc.FN;
+            k_best.TP = thisvoc.k_best_TP; k_best.TN = thisvoc.k_best_TN; k_best.FP = thisvoc.k_best_FP; k_best.FN = thisvoc.k_best_FN;
+            Report(simple, k_best);
+        } else {
+            simpleNB.Run();
+            k_best_FS.Run();
+        }
+    }
+
+    /**
+     *  A method writing the charts and the report of both the simple and the k-Best feature selection models into the
+     *  report directory.
+     *  @param simple The confusion matrix of the simple model on the test dataset.
+     *  @param k_best The confusion matrix of the k-Best feature selection model on the test dataset.
+     */
+    private void Report(ConfusionMatrix simple, ConfusionMatrix k_best) {
+        PerformanceReport report = new PerformanceReport(dataset);
+        report.add(simpleNB.getType(), simple, simpleNB.getTrainData(), simpleNB.getRealData());
+        report.add(k_best_FS.getType(), k_best, k_best_FS.getTrainData(), k_best_FS.getRealData());
+        try {
+            simpleNB.Render(reportDirectory);
+            k_best_FS.Render(reportDirectory);
+            report.WriteJSON(new File(reportDirectory, "report.json"));
+            report.WriteCSV(new File(reportDirectory, "results.csv"), new File(reportDirectory, "datapoints.csv"));
+        } catch (IOException e) {
+            throw new IllegalStateException("The system could not write the report specified", e);
+        }
+    }
+
+    /**
+     *  A method evaluating several k-Best feature selection variants on the test dataset in a single pass; each test
+     *  document is read and tokenized once and scored for every variant. For further information also check the
+     *  documentation of the MultiVariantEvaluator class.
+     *  @param kappas The data percentages to be used from the vocabulary dataset; one per variant.
+     *  @return The evaluator holding the confusion matrix of every variant.
+     */
+    public MultiVariantEvaluator EvaluateVariants(double[] kappas) {
+        MultiVariantEvaluator evaluator = new MultiVariantEvaluator(thisvoc, kappas);
+        CorpusSource test_data = OpenCorpus(testDataRepository);
+        try {
+            evaluator.Evaluate(test_data);
+        } catch (IOException e) {
+            throw new IllegalStateException("The system could not find the file specified", e);
+        } finally {
+            Close(test_data);
+        }
+        evaluator.OutputResults();
+        return evaluator;
+    }
+
+    /**
+     *  A method switching the classifier to scoring with quantized log-likelihood ratios; and measuring the accuracy
+     *  loss against full precision on the test dataset. For further information also check the documentation of the
+     *  QuantizedModel class.
+     *  @param bits QuantizedModel.FLOAT or QuantizedModel.FIXED_16.
+     *  @param exactFallback true for rescoring with full precision the documents whose classification the
+     *  quantization might change.
+     *  @return The quantized model; used by every later test.
+     */
+    public QuantizedModel Quantize(int bits, boolean exactFallback) {
+        QuantizedModel quantized = thisvoc.Quantize(bits, exactFallback);
+        if (k_best_properties == null) k_best_properties = thisvoc.GetInformationGainConclusions(kappa);
+        CorpusSource test_data = OpenCorpus(testDataRepository);
+        try {
+            quantized.Measure(thisvoc, test_data, k_best_properties);
+        } catch (IOException e) {
+            throw new IllegalStateException("The system could not find the file specified", e);
+        } finally {
+            Close(test_data);
+        }
+        quantized.OutputResults();
+        return quantized;
+    }
+
+    /**
+     *  A method estimating the performance of both the simple and the k-Best feature selection models through k-fold
+     *  cross-validation on the train dataset; training and evaluating the folds concurrently on the training workers.
+     *  For further information also check the documentation of the CrossValidation class.
+     *  @param folds The number of folds.
+     *  @return The cross-validation holding the per-fold confusion matrices.
+     */
+    public CrossValidation CrossValidate(int folds) {
+        CrossValidation validation;
+        CorpusSource corpus = OpenCorpus(trainDataRepository);
+        try { // the documents are tokenized up front
+            validation = new CrossValidation(corpus, folds, kappa);
+        } catch (IOException e) {
+            throw new IllegalStateException("The system could not find the file specified", e);
+        } finally {
+            Close(corpus);
+        }
+        validation.Run(Math.max(1, workers));
+        validation.OutputResults();
+        return validation;
+    }
+
+    /**
+     *  A method computing the learning curve of both the simple and the k-Best feature selection models, on the train and
+     *  the test dataset, in a single training pass; instead of TrainNaiveBayes(), since the classifier is trained on every
+     *  train document along the way and may be tested further. Connects the curve with the graphical output as well.
+     *  For further information also check the documentation of the LearningCurve class.
+     *  @return The learning curve.
+     */
+    public LearningCurve TestLearningCurve() {
+        train_data = OpenCorpus(trainDataRepository);
+        CorpusSource test_data = OpenCorpus(testDataRepository);
+        LearningCurve curve = new LearningCurve(thisvoc, kappa, workers);
+        try {
+            curve.Run(train_data, test_data, TrainCache(), trainDataRepository);
+        } finally {
+            Close(train_data);
+            Close(test_data);
+        }
+        k_best_properties = thisvoc.GetInformationGainConclusions(kappa);
+        curve.OutputResults();
+        simpleNB.LoadTrainData(curve.getTrainCurve(false));
+        simpleNB.LoadRealData(curve.getTestCurve(false));
+        k_best_FS.LoadTrainData(curve.getTrainCurve(true));
+        k_best_FS.LoadRealData(curve.getTestCurve(true));
+        if (reportDirectory != null) {
+            Report(curve.getTestResults(false), curve.getTestResults(true));
+        } else {
+            simpleNB.Run();
+            k_best_FS.Run();
+        }
+        return curve;
     }
 
     /**
@@ -1,3 +1,7 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.BitSet;
+
 /**
  *  Tests.java
  *  Executable file proceeding with all Naive Bayes designed tests.
@@ -6,18 +10,50 @@
 public class Tests {
     /**
      *  Test on Enron-Spam dataset.
+     *  @throws IOException If the spill file of the document cache could not be created.
+     */
+    public static void EnronSpam() throws IOException {
+        TestLogic current = new TestLogic("enron_train_data", "enron_test_data", "Enron-Spam", 0.9, Runtime.getRuntime().availableProcessors());
+        DocumentCache cache = new DocumentCache(64L << 20);
+        current.setDocumentCache(cache);
+        if (System.getProperty("report.directory") != null) current.setReportDirectory(new File(System.getProperty("report.directory")));
+        try {
+            current.TrainNaiveBayes();
+            current.TestOnTrainData();
+            current.TestOnRealData();
+        } finally {
+            cache.close();
+        }
+    }
+
+    /**
+     *  Test on a multi-class dataset; whose categories are taken from the subdirectories of each repository, or from
+     *  a label manifest. For further information also check the documentation of the LabelledCorpus class.
+     *  @param trainRep The train data repository.
+     *  @param testRep The test data repository.
      */
-    public static void EnronSpam() {
-        TestLogic current = new TestLogic("enron_train_data", "enron_test_data", "Enron-Spam", 0.9);
-        current.TrainNaiveBayes();
-        current.TestOnTrainData();
-        current.TestOnRealData();
+    public static void MultiClass(String trainRep, String testRep) throws IOException {
+        LabelledCorpus train_data = new LabelledCorpus(trainRep);
+        MultiClassNaiveBayes classifier = new MultiClassNaiveBayes(train_data.getLabels());
+        classifier.Train(train_data);
+        BitSet k_best_properties = classifier.GetInformationGainConclusions(0.9);
+        classifier.Evaluate(new LabelledCorpus(testRep), k_best_properties);
+        classifier.OutputResults();
     }
 
     /**
-     *  Main Method.
+     *  Main Method. The metrics are published over JMX; and exported every ten seconds into the file given by the
+     *  metrics.snapshot system property, if set. With the report.directory system property set, the charts and the
+     *  results are written into that directory instead of being shown in windows. Given a train and a test
+     *  repository as arguments, the multi-class test runs on them instead.
      */
-    public static void main(String[] args) {
-        System.out.println("Example: Enron-Spam"); EnronSpam();
+    public static void main(String[] args) throws IOException {
+        MetricsRegistry.DEFAULT.publish();
+        if (System.getProperty("metrics.snapshot") != null) MetricsRegistry.DEFAULT.startSnapshots(System.getProperty("metrics.snapshot"), 10);
+        if (args.length == 2) {
+            System.out.println("Example: Multi-class"); MultiClass(args[0], args[1]);
+        } else {
+            System.out.println("Example: Enron-Spam"); EnronSpam();
+        }
     }
 }
@@ -0,0 +1,15 @@
+/**
+ *  TokenSink.java
+ *  Represents the receiver of the tokens produced by a Tokenizer.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public interface TokenSink {
+    /**
+     * A method receiving a token; the characters of which are only valid during the call.
+     * @param buffer The characters containing the token.
+     * @param offset The index of the first character of the token.
+     * @param length The number of characters of the token.
+     * @param hash The hash code of the token; equal to the hash code of the respective String.
+     */
+    void accept(char[] buffer, int offset, int length, int hash);
+}
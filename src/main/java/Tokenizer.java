@@ -0,0 +1,26 @@
+import java.nio.ByteBuffer;
+
+/**
+ *  Tokenizer.java
+ *  Represents a pluggable tokenizer shared by the train and test file readers; so that both apply identical
+ *  normalization rules. Tokens are handed to a TokenSink as character ranges together with their hash codes, without
+ *  materializing intermediate Strings.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public interface Tokenizer {
+    /**
+     * A method tokenizing a range of characters.
+     * @param text The characters to be tokenized.
+     * @param offset The index of the first character.
+     * @param length The number of characters.
+     * @param sink The receiver of the tokens.
+     */
+    void tokenize(char[] text, int offset, int length, TokenSink sink);
+
+    /**
+     * A method tokenizing the remaining bytes of a buffer; without changing its position.
+     * @param text The encoded characters to be tokenized.
+     * @param sink The receiver of the tokens.
+     */
+    void tokenize(ByteBuffer text, TokenSink sink);
+}
@@ -0,0 +1,92 @@
+import java.util.BitSet;
+
+/**
+ *  TopKSelector.java
+ *  Selects the k highest scoring ids out of a primitive score array with a bounded binary heap of ids; in O(n log k)
+ *  time, without boxing or sorting the whole array. When more than half of the ids are to be kept, the complementary
+ *  lowest scoring ids are selected instead, so that the heap never exceeds half of the ids. Equal scores are ordered
+ *  by id; so the selection equals the tail of a stable ascending sort of the ids by score.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class TopKSelector {
+    /*
+     *  Local variables.
+     */
+    private final double[] scores;
+    private final boolean highest;
+    private final int[] heap;
+    private int size;
+
+    /**
+     *  A method selecting the k highest scoring ids.
+     *  @param scores The scores indexed by id.
+     *  @param n The number of ids; the first n entries of the scores.
+     *  @param k The number of ids to be selected.
+     *  @return The set of the k highest scoring ids.
+     */
+    public static BitSet select(double[] scores, int n, int k) {
+        k = Math.max(0, Math.min(k, n));
+        BitSet selected = new BitSet(n);
+        if (k <= n - k) {
+            TopKSelector selector = new TopKSelector(scores, true, k);
+            for(int id = 0; id < n; id++) selector.offer(id);
+            for(int i = 0; i < selector.size; i++) selected.set(selector.heap[i]);
+        } else {
+            TopKSelector selector = new TopKSelector(scores, false, n - k);
+            for(int id = 0; id < n; id++) selector.offer(id);
+            selected.set(0, n);
+            for(int i = 0; i < selector.size; i++) selected.clear(selector.heap[i]);
+        }
+        return selected;
+    }
+
+    /**
+     *  Default constructor override.
+     *  @param scores The scores indexed by id.
+     *  @param highest true for keeping the highest scoring ids, false for the lowest.
+     *  @param capacity The number of ids to be kept.
+     */
+    private TopKSelector(double[] scores, boolean highest, int capacity) {
+        this.scores = scores;
+        this.highest = highest;
+        this.heap = new int[capacity];
+        this.size = 0;
+    }
+
+    /**
+     *  A method comparing two ids; the root of the heap holds the id that would be evicted first.
+     *  @return true if id a should be evicted before id b.
+     */
+    private boolean before(int a, int b) {
+        int order = Double.compare(scores[a], scores[b]);
+        if (order == 0) order = a < b ? -1 : 1;
+        return highest ? order < 0 : order > 0;
+    }
+
+    /**
+     *  A method offering an id to the heap; replacing the root if the id ranks after it.
+     */
+    private void offer(int id) {
+        if (size < heap.length) {
+            int child = size++;
+            while (child > 0) { // sift up
+                int parent = (child - 1) >>> 1;
+                if (!before(id, heap[parent])) break;
+                heap[child] = heap[parent];
+                child = parent;
+            }
+            heap[child] = id;
+        } else if (size > 0 && before(heap[0], id)) {
+            int parent = 0;
+            while (true) { // sift down
+                int child = 2 * parent + 1;
+                if (child >= size) break;
+                if (child + 1 < size && before(heap[child + 1], heap[child])) child++;
+                if (!before(heap[child], id)) break;
+                heap[parent] = heap[child];
+                parent = child;
+            }
+            heap[parent] = id;
+        }
+    }
+}
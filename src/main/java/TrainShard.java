@@ -0,0 +1,84 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+
+/**
+ *  TrainShard.java
+ *  A training task reading a contiguous slice of the train documents into its own private count table; to be
+ *  executed by a worker pool and merged into the Naive Bayes vocabulary afterwards.
+ *  @author Georgios M. Moschovis (p3150113@aueb.gr)
+ */
+public class TrainShard implements Callable<CountTable> {
+    /*
+     *  Local variables.
+     */
+    private NaiveBayes classifier;
+    private CorpusSource corpus;
+    private int start, end;
+    private boolean collectTokens;
+
+    /**
+     *  Default constructor override.
+     *  @param classifier The Naive Bayes instance providing the train document reader.
+     *  @param corpus The train corpus.
+     *  @param start The index of the first train document of this shard.
+     *  @param end The index following the last train document of this shard.
+     */
+    public TrainShard(NaiveBayes classifier, CorpusSource corpus, int start, int end) {
+        this.classifier = classifier;
+        this.corpus = corpus;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     *  Overloaded constructor optionally collecting the term ids of every train document of this shard.
+     *  @param classifier The Naive Bayes instance providing the train document reader.
+     *  @param corpus The train corpus.
+     *  @param start The index of the first train document of this shard.
+     *  @param end The index following the last train document of this shard.
+     *  @param collectTokens true for collecting the term ids into the documents of the partial count table.
+     */
+    public TrainShard(NaiveBayes classifier, CorpusSource corpus, int start, int end, boolean collectTokens) {
+        this(classifier, corpus, start, end);
+        this.collectTokens = collectTokens;
+    }
+
+    /**
+     *  Implementation of overridden method call.
+     *  Unreadable train documents are skipped, as the sequential reading does; their term ids are collected as NULL.
+     *  @return The partial count table of this shard.
+     */
+    public CountTable call() {
+        CountTable table = classifier.NewPartialTable();
+        if (collectTokens) table.documents = new ArrayList<int[]>(end - start);
+        for(int train = start; train < end; train++) {
+            ByteBuffer content = Read(train);
+            if (collectTokens) {
+                table.documents.add(content == null ? null : classifier.ReadTrainTokens(content, corpus.isSpam(train), table));
+            } else if (content != null) {
+                classifier.ReadTrainDocument(content, corpus.isSpam(train), table);
+            }
+        }
+        return table;
+    }
+
+    /**
+     *  A method reading the contents of a train document; recording the latency of reading and displaying an error
+     *  description if reading failed.
+     *  @return The encoded contents of the document, or NULL if reading failed.
+     */
+    private ByteBuffer Read(int train) {
+        try {
+            long start = System.nanoTime();
+            ByteBuffer content = corpus.getContent(train);
+            TestLogic.READ_LATENCY.record(System.nanoTime() - start);
+            return content;
+        } catch (IOException e) {
+            System.err.println("The system could not find the file specified");
+            e.printStackTrace();
+            return null;
+        }
+    }
+}